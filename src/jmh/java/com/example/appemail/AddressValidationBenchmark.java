@@ -0,0 +1,55 @@
+package com.example.appemail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Сравнивает проверку адресов {@link EmailAddressValidator} с регулярным выражением,
+ * которое использовалось в EmailReader раньше.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddressValidationBenchmark {
+
+    private static final Pattern LEGACY_EMAIL_PATTERN = Pattern.compile("^[\\w-_.+]*[\\w-_.]@([\\w]+\\.)+[\\w]+[\\w]$");
+
+    private final String[] addresses = {
+            "ivan.petrov@example.com",
+            "first.last+tag@mail.subdomain.example.org",
+            "a@b.co",
+            "not-an-address",
+            "user@@example.com",
+            "very.long.local.part.with.many.dots@very.long.domain.name.example.com",
+            "trailing.dot@example.",
+            "UPPER.CASE@EXAMPLE.RU"
+    };
+
+    @Benchmark
+    public void validator(Blackhole blackhole) {
+        for (String address : addresses) {
+            blackhole.consume(EmailAddressValidator.isValid(address));
+        }
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole blackhole) {
+        for (String address : addresses) {
+            blackhole.consume(LEGACY_EMAIL_PATTERN.matcher(address).matches());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.appemail;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Класс BenchmarkData создает тестовые данные для бенчмарков и нагрузочного теста.
+ */
+final class BenchmarkData {
+
+    private static final String PARAGRAPH = "Здравствуйте, {name}! Приглашаем вас на открытие нового филиала. "
+            + "Для участников рассылки действует скидка 10% на все услуги до конца месяца.\n";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Создает текст письма заданной длины с полем {@code {name}} в каждом абзаце.
+     *
+     * @param length Примерная длина текста в символах.
+     * @return Текст письма.
+     */
+    static String letter(int length) {
+        StringBuilder letter = new StringBuilder(length + PARAGRAPH.length());
+        while (letter.length() < length) {
+            letter.append(PARAGRAPH);
+        }
+        return letter.toString();
+    }
+
+    /**
+     * Создает временный файл получателей с заголовком {@code #email, name}.
+     * Примерно каждая сотая строка содержит некорректный адрес.
+     *
+     * @param lines Число строк с получателями.
+     * @return Путь к созданному файлу.
+     * @throws IOException Если файл не удалось записать.
+     */
+    static Path recipientFile(int lines) throws IOException {
+        Path file = Files.createTempFile("recipients-", ".txt");
+        Random random = new Random(lines);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("#email, name\n");
+            for (int i = 0; i < lines; i++) {
+                if (random.nextInt(100) == 0) {
+                    writer.write("broken-address-" + i + ", Получатель " + i + "\n");
+                } else {
+                    writer.write("user" + i + "@domain" + random.nextInt(1000) + ".example.com, Получатель " + i + "\n");
+                }
+            }
+        }
+        return file;
+    }
+}
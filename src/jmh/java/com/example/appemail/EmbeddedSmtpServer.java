@@ -0,0 +1,207 @@
+package com.example.appemail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс EmbeddedSmtpServer — SMTP сервер для нагрузочного теста, работающий в том же процессе.
+ * Сервер принимает любую аутентификацию и не сохраняет письма, а только подсчитывает их.
+ * Задержка ответа на DATA и доля временных и постоянных ошибок настраиваются,
+ * что позволяет проверить поведение рассылки при медленном или нестабильном сервере.
+ */
+class EmbeddedSmtpServer implements AutoCloseable {
+
+    private final long dataLatencyMillis;
+    private final double transientFailureRate;
+    private final double permanentFailureRate;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "embedded-smtp");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder acceptedMessages = new LongAdder();
+    private final LongAdder acceptedRecipients = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Запускает сервер на свободном порту локального интерфейса.
+     *
+     * @param dataLatencyMillis Задержка перед ответом на окончание DATA в миллисекундах.
+     * @param transientFailureRate Доля писем, отклоняемых временной ошибкой 451.
+     * @param permanentFailureRate Доля адресов, отклоняемых постоянной ошибкой 550.
+     * @throws IOException Если не удалось открыть порт.
+     */
+    EmbeddedSmtpServer(long dataLatencyMillis, double transientFailureRate, double permanentFailureRate) throws IOException {
+        this.dataLatencyMillis = dataLatencyMillis;
+        this.transientFailureRate = transientFailureRate;
+        this.permanentFailureRate = permanentFailureRate;
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "embedded-smtp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return Порт, на котором сервер принимает соединения.
+     */
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return Адрес, на котором сервер принимает соединения.
+     */
+    String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    /**
+     * @return Число принятых писем.
+     */
+    long getAcceptedMessages() {
+        return acceptedMessages.sum();
+    }
+
+    /**
+     * @return Число получателей в принятых письмах.
+     */
+    long getAcceptedRecipients() {
+        return acceptedRecipients.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Embedded SMTP server failed to accept a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Обслуживает одно SMTP соединение.
+     *
+     * @param socket Сокет клиента.
+     */
+    private void handle(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 embedded ESMTP");
+            int recipients = 0;
+            String line;
+            while ((line = readLine(in)) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("EHLO")) {
+                    reply(out, "250-embedded\r\n250-AUTH PLAIN LOGIN\r\n250-8BITMIME\r\n250 PIPELINING");
+                } else if (command.startsWith("HELO")) {
+                    reply(out, "250 embedded");
+                } else if (command.startsWith("AUTH")) {
+                    authenticate(command, in, out);
+                } else if (command.startsWith("MAIL")) {
+                    recipients = 0;
+                    reply(out, "250 2.1.0 Ok");
+                } else if (command.startsWith("RCPT")) {
+                    if (ThreadLocalRandom.current().nextDouble() < permanentFailureRate) {
+                        reply(out, "550 5.1.1 User unknown");
+                    } else {
+                        recipients++;
+                        reply(out, "250 2.1.5 Ok");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    skipData(in);
+                    if (dataLatencyMillis > 0) {
+                        Thread.sleep(dataLatencyMillis);
+                    }
+                    if (ThreadLocalRandom.current().nextDouble() < transientFailureRate) {
+                        reply(out, "451 4.3.0 Temporary failure, try again later");
+                    } else {
+                        acceptedMessages.increment();
+                        acceptedRecipients.add(recipients);
+                        reply(out, "250 2.0.0 Ok: queued");
+                    }
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 2.0.0 Bye");
+                    return;
+                } else {
+                    reply(out, "250 Ok");
+                }
+            }
+        } catch (IOException e) {
+            // Клиент закрыл соединение.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void authenticate(String command, InputStream in, OutputStream out) throws IOException {
+        String[] parts = command.split(" ");
+        if (parts.length > 1 && parts[1].equals("LOGIN")) {
+            if (parts.length == 2) {
+                reply(out, "334 VXNlcm5hbWU6");
+                readLine(in);
+            }
+            reply(out, "334 UGFzc3dvcmQ6");
+            readLine(in);
+        } else if (parts.length == 2) {
+            reply(out, "334 ");
+            readLine(in);
+        }
+        reply(out, "235 2.7.0 Authentication successful");
+    }
+
+    private static void skipData(InputStream in) throws IOException {
+        String line;
+        while ((line = readLine(in)) != null && !line.equals(".")) {
+            // Текст письма не сохраняется.
+        }
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Измеряет создание письма {@link MimeMessageFactory} и его сериализацию в том виде,
+ * в котором его передает SMTP транспорт. Параметр {@code attachmentKb} добавляет в письмо общее вложение
+ * ({@link SharedAttachment}) заданного размера.
+ * Методы {@code legacy*} воспроизводят прежний путь {@code EmailSender.createEmailMessage}: для каждого
+ * получателя создаются свойства и сессия, текст подставляется заменой строки и задается через
+ * {@link MimeMessage#setText(String)}. Прежний путь не поддерживал вложения, поэтому параметр
+ * {@code attachmentKb} на него не влияет. Выделение памяти сравнивается профилировщиком gc,
+ * включенным в блоке {@code jmh} файла build.gradle.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MimeMessageBenchmark {
+
+    @Param({"200", "5000"})
+    public int letterLength;
+
+    @Param({"0", "1024"})
+    public int attachmentKb;
+
+    private MimeMessageFactory factory;
+    private Recipient recipient;
+    private String letter;
+
+    @Setup
+    public void setUp() throws MessagingException, IOException {
+        List<SharedAttachment> attachments = Collections.emptyList();
+        if (attachmentKb > 0) {
+            byte[] content = new byte[attachmentKb * 1024];
+            new Random(1).nextBytes(content);
+            Path file = Files.createTempFile("benchmark-attachment-", ".pdf");
+            Files.write(file, content);
+            attachments = List.of(SharedAttachment.encode(file));
+            Files.delete(file);
+        }
+        letter = BenchmarkData.letter(letterLength);
+        factory = new MimeMessageFactory("Тема рассылки", MessageTemplate.compile(letter), attachments);
+        recipient = new Recipient("ivan.petrov@example.com", "Иван Петров");
+    }
+
+    @Benchmark
+    public MimeMessage create() throws MessagingException {
+        return factory.create(recipient);
+    }
+
+    @Benchmark
+    public long createAndWrite() throws MessagingException, IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        MimeMessage message = factory.create(recipient);
+        message.saveChanges();
+        message.writeTo(out);
+        return out.count;
+    }
+
+    @Benchmark
+    public MimeMessage legacyCreateEmailMessage() throws MessagingException {
+        return legacyCreate();
+    }
+
+    @Benchmark
+    public long legacyCreateAndWrite() throws MessagingException, IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        MimeMessage message = legacyCreate();
+        message.saveChanges();
+        message.writeTo(out);
+        return out.count;
+    }
+
+    private MimeMessage legacyCreate() throws MessagingException {
+        Properties properties = new Properties();
+        properties.put("mail.smtp.auth", "true");
+        properties.put("mail.smtp.starttls.enable", "true");
+        properties.put("mail.smtp.host", "smtp.gmail.com");
+        properties.put("mail.smtp.port", "587");
+        Session session = Session.getInstance(properties);
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("sender@example.com"));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipient.getEmail()));
+        message.setSubject("Тема рассылки");
+        message.setText(letter.replace("{name}", recipient.getName()));
+        return message;
+    }
+
+    /**
+     * Поток, который только подсчитывает записанные байты.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
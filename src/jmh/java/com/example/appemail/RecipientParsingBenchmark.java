@@ -0,0 +1,86 @@
+package com.example.appemail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сравнивает последовательный разбор файла получателей с разбором {@link ParallelRecipientParser}
+ * на файлах из 1 и 10 миллионов строк. Файл создается один раз на запуск бенчмарка.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RecipientParsingBenchmark {
+
+    private static final OutputSink DISCARD = text -> { };
+
+    @Param({"1000000", "10000000"})
+    public int lines;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkData.recipientFile(lines);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long sequential() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String[] header = RecipientLineTokenizer.parseHeader(reader.readLine());
+            String[] columns = header != null ? header : Recipient.DEFAULT_COLUMNS;
+            long count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (RecipientLineTokenizer.parse(line, 0, line.length(), columns, DISCARD) != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    @Benchmark
+    public long parallel() throws IOException {
+        try (Stream<Recipient> recipients = new ParallelRecipientParser().stream(file, DISCARD)) {
+            return recipients.count();
+        }
+    }
+
+    @Benchmark
+    public long parallelSingleThread() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try (Stream<Recipient> recipients = new ParallelRecipientParser(pool, ParallelRecipientParser.DEFAULT_CHUNK_SIZE).stream(file, DISCARD)) {
+            return recipients.count();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
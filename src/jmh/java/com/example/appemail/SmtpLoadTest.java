@@ -0,0 +1,93 @@
+package com.example.appemail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочный тест рассылки: отправляет письма через {@link BulkEmailDispatcher} на
+ * {@link EmbeddedSmtpServer} и выводит скорость отправки и процентили задержек из {@link SendMetrics}.
+ * Параметры командной строки:
+ * <ul>
+ *     <li>{@code --messages N} — число писем, по умолчанию 10000;</li>
+ *     <li>{@code --accounts N} — число учетных записей отправителя, по умолчанию 1;</li>
+ *     <li>{@code --connections N} — число соединений на учетную запись;</li>
+ *     <li>{@code --batch N} — число получателей одного письма, по умолчанию 1;</li>
+ *     <li>{@code --latency-ms N} — задержка сервера на DATA в миллисекундах, по умолчанию 0;</li>
+ *     <li>{@code --failure-rate X} — доля временных ошибок 451, по умолчанию 0;</li>
+ *     <li>{@code --permanent-rate X} — доля адресов, отклоняемых ошибкой 550, по умолчанию 0.</li>
+ * </ul>
+ * Ограничение частоты отправки в тесте отключено, а паузы между повторами сокращены.
+ */
+public final class SmtpLoadTest {
+
+    private SmtpLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messages = intOption(args, "--messages", 10_000);
+        int accountCount = intOption(args, "--accounts", 1);
+        int connections = intOption(args, "--connections", EmailSender.DEFAULT_MAX_CONNECTIONS);
+        int batchSize = intOption(args, "--batch", 1);
+        long latencyMillis = intOption(args, "--latency-ms", 0);
+        double failureRate = doubleOption(args, "--failure-rate", 0);
+        double permanentRate = doubleOption(args, "--permanent-rate", 0);
+
+        try (EmbeddedSmtpServer server = new EmbeddedSmtpServer(latencyMillis, failureRate, permanentRate)) {
+            List<SmtpAccount> accounts = new ArrayList<>();
+            for (int i = 0; i < accountCount; i++) {
+                accounts.add(new SmtpAccount("sender" + i + "@load.test", "password", server.getHost(), server.getPort(), SmtpAccount.DEFAULT_WEIGHT));
+            }
+            MimeMessageFactory factory = new MimeMessageFactory("Нагрузочный тест", MessageTemplate.compile(BenchmarkData.letter(1000)));
+            SendRateLimiter unlimited = new SendRateLimiter(1e9, 1_000_000, 1e9, 1_000_000);
+            RetryPolicy fastRetries = new RetryPolicy(4, 10, 200, 200);
+
+            SendMetrics metrics = SendMetrics.getInstance();
+            metrics.reset();
+            long start = System.nanoTime();
+            AtomicInteger sent = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            try (AccountRouter router = new AccountRouter(accounts, connections);
+                 BulkEmailDispatcher dispatcher = new BulkEmailDispatcher(router, factory, connections, 1000, batchSize,
+                         result -> (result.isSuccessful() ? sent : failed).incrementAndGet(), fastRetries, unlimited)) {
+                for (int i = 0; i < messages; i++) {
+                    // Одинаковое имя у всех получателей пакета, чтобы пакеты заполнялись при --batch > 1.
+                    dispatcher.submit(new Recipient("user" + i + "@domain" + (i % 100) + ".load.test", "Получатель " + (i / Math.max(1, batchSize))));
+                }
+                dispatcher.finish().get();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+
+            double seconds = elapsedNanos / 1e9;
+            Map<String, Long> latency = metrics.getLatencyPercentilesMicros();
+            System.out.printf(Locale.ROOT, "messages=%d sent=%d failed=%d elapsed=%.2fs throughput=%.1f msg/s%n",
+                    messages, sent.get(), failed.get(), seconds, sent.get() / seconds);
+            System.out.printf(Locale.ROOT, "send latency: p50=%.2fms p99=%.2fms max=%.2fms%n",
+                    latency.get("send.p50") / 1000.0, latency.get("send.p99") / 1000.0, latency.get("send.max") / 1000.0);
+            System.out.printf(Locale.ROOT, "server accepted: messages=%d recipients=%d%n",
+                    server.getAcceptedMessages(), server.getAcceptedRecipients());
+            System.out.println(metrics.summary());
+        }
+    }
+
+    private static int intOption(String[] args, String name, int defaultValue) {
+        String value = option(args, name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static double doubleOption(String[] args, String name, double defaultValue) {
+        String value = option(args, name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static String option(String[] args, String name) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.appemail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Измеряет подстановку полей в шаблон письма: скомпилированный {@link MessageTemplate}
+ * в строку и сразу в UTF-8, а также замену {@code String.replace}, как в прежнем LetterReader.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+    @Param({"200", "5000"})
+    public int letterLength;
+
+    private String letter;
+    private MessageTemplate template;
+    private Recipient recipient;
+
+    @Setup
+    public void setUp() {
+        letter = BenchmarkData.letter(letterLength);
+        template = MessageTemplate.compile(letter);
+        recipient = new Recipient("ivan.petrov@example.com", "Иван Петров");
+    }
+
+    @Benchmark
+    public String render() {
+        return template.render(recipient);
+    }
+
+    @Benchmark
+    public byte[] renderUtf8() {
+        return template.renderUtf8(recipient);
+    }
+
+    @Benchmark
+    public byte[] legacyReplace() {
+        return letter.replace("{name}", recipient.getName()).getBytes(StandardCharsets.UTF_8);
+    }
+}
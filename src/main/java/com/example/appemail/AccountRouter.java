@@ -0,0 +1,122 @@
+package com.example.appemail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс AccountRouter распределяет письма рассылки между несколькими учетными записями отправителей.
+ * Учетная запись для очередного письма выбирается плавным взвешенным циклическим алгоритмом:
+ * учетная запись с весом 3 получает втрое больше писем, чем учетная запись с весом 1, и письма
+ * чередуются равномерно, а не пачками. Учетная запись, которая не прошла аутентификацию или
+ * исчерпала квоту отправки, исключается из распределения до конца рассылки.
+ */
+public class AccountRouter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AccountRouter.class);
+
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * Создает распределитель с отправителями для всех учетных записей.
+     *
+     * @param accounts Учетные записи отправителей.
+     * @param maxConnections Максимальное число одновременно открытых соединений для одной учетной записи.
+     */
+    public AccountRouter(List<SmtpAccount> accounts, int maxConnections) {
+        if (accounts.isEmpty()) {
+            throw new IllegalArgumentException("Не задано ни одной учетной записи отправителя.");
+        }
+        try {
+            for (SmtpAccount account : accounts) {
+                routes.add(new Route(account.openSender(maxConnections), account.getWeight()));
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Создает распределитель с единственным отправителем.
+     *
+     * @param sender Отправитель писем.
+     */
+    public AccountRouter(EmailSender sender) {
+        routes.add(new Route(sender, SmtpAccount.DEFAULT_WEIGHT));
+    }
+
+    /**
+     * Выбирает отправителя для очередного письма.
+     *
+     * @return Отправитель или null, если все учетные записи исключены из распределения.
+     */
+    public synchronized EmailSender next() {
+        Route best = null;
+        int totalWeight = 0;
+        for (Route route : routes) {
+            if (route.disabled) {
+                continue;
+            }
+            route.currentWeight += route.weight;
+            totalWeight += route.weight;
+            if (best == null || route.currentWeight > best.currentWeight) {
+                best = route;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        best.currentWeight -= totalWeight;
+        return best.sender;
+    }
+
+    /**
+     * Исключает учетную запись отправителя из распределения до конца рассылки.
+     *
+     * @param sender Отправитель.
+     * @param reason Причина исключения для журнала.
+     */
+    public synchronized void disable(EmailSender sender, String reason) {
+        for (Route route : routes) {
+            if (route.sender == sender && !route.disabled) {
+                route.disabled = true;
+                logger.warn("Account {} removed from the campaign: {}", sender.getUsername(), reason);
+            }
+        }
+    }
+
+    /**
+     * @return Число учетных записей отправителей.
+     */
+    public int size() {
+        return routes.size();
+    }
+
+    /**
+     * Закрывает соединения всех отправителей.
+     */
+    @Override
+    public void close() {
+        for (Route route : routes) {
+            route.sender.close();
+        }
+    }
+
+    /**
+     * Учетная запись в распределении: отправитель, его вес и текущее состояние алгоритма выбора.
+     */
+    private static class Route {
+        private final EmailSender sender;
+        private final int weight;
+        private int currentWeight;
+        private boolean disabled;
+
+        Route(EmailSender sender, int weight) {
+            this.sender = sender;
+            this.weight = weight;
+        }
+    }
+}
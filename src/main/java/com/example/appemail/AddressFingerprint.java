@@ -0,0 +1,73 @@
+package com.example.appemail;
+
+/**
+ * Класс AddressFingerprint вычисляет 64-битные отпечатки адресов электронной почты.
+ * Отпечатки позволяют хранить множества адресов компактно, без самих строк.
+ * Перед вычислением адрес нормализуется: пробельные символы по краям отбрасываются,
+ * латинские буквы приводятся к нижнему регистру.
+ */
+public final class AddressFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private AddressFingerprint() {
+    }
+
+    /**
+     * Вычисляет отпечаток нормализованного адреса.
+     *
+     * @param address Адрес электронной почты.
+     * @return 64-битный отпечаток адреса.
+     */
+    public static long of(CharSequence address) {
+        int start = 0;
+        int end = address.length();
+        while (start < end && address.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && address.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++) {
+            char c = address.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            hash ^= c;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Вычисляет отпечаток произвольной строки без нормализации.
+     *
+     * @param text Строка.
+     * @return 64-битный отпечаток строки.
+     */
+    public static long ofText(CharSequence text) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Перемешивает биты хеша, чтобы младшие биты отпечатка были равномерно распределены.
+     *
+     * @param hash Исходный хеш.
+     * @return Перемешанный хеш.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
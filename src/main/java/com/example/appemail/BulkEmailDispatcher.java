@@ -0,0 +1,613 @@
+package com.example.appemail;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс BulkEmailDispatcher отправляет письма многим получателям параллельно.
+ * Письма распределяются между учетными записями отправителей через {@link AccountRouter}; если учетная запись
+ * не прошла аутентификацию или исчерпала квоту, письмо сразу передается другой учетной записи.
+ * Число одновременных отправок с одной учетной записи ограничено, а число писем, ожидающих отправки,
+ * ограничено размером очереди: при ее заполнении метод submit блокирует вызывающий поток.
+ * Письма, не отправленные из-за временной ошибки, откладываются планировщиком повторов
+ * на время, определяемое {@link RetryPolicy}, и затем снова передаются рабочим потокам, поэтому
+ * ожидание повтора не занимает рабочий поток и не задерживает отправку новых писем.
+ * Частота отправки ограничивается {@link SendRateLimiter}, который замедляет отправку,
+ * когда сервер сообщает о превышении частоты. Письмо, для домена получателя которого разрешение
+ * еще не наступило, откладывается тем же планировщиком и не занимает рабочий поток, поэтому письма
+ * на один домен, идущие подряд, не задерживают письма на другие домены.
+ * В пакетном режиме получатели с одинаковым текстом письма (см. {@link MessageTemplate#renderKey(Recipient)})
+ * собираются в пакеты, и каждый пакет отправляется одним письмом с несколькими адресами в конверте.
+ * Получатели, которым пакетное письмо доставить не удалось, отправляются по отдельности.
+ * Результаты по каждому получателю передаются слушателю по мере отправки и не хранятся,
+ * поэтому объем памяти не зависит от числа получателей. Слушатель вызывается до завершения {@link #finish()}.
+ */
+public class BulkEmailDispatcher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(BulkEmailDispatcher.class);
+
+    private final AccountRouter accountRouter;
+    private final MessageSource messageFactory;
+    private final Consumer<SendResult> resultListener;
+    private final RetryPolicy retryPolicy;
+    private final SendRateLimiter rateLimiter;
+    private final int maxConcurrencyPerAccount;
+    private final int maxBatchSize;
+    private final int maxBufferedRecipients;
+    private final Map<String, List<QueuedRecipient>> openBatches = new LinkedHashMap<>();
+    private int bufferedRecipients;
+    static final long CLOSE_TIMEOUT_SECONDS = 60;
+    static final String STOPPED_MESSAGE = "Рассылка остановлена.";
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService retryScheduler;
+    private final Set<DispatchTask> delayedTasks = ConcurrentHashMap.newKeySet();
+    private final Semaphore queuePermits;
+    private final ConcurrentMap<EmailSender, Semaphore> senderPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile boolean finished;
+
+    /**
+     * Конструктор класса BulkEmailDispatcher.
+     *
+     * @param emailSender Отправитель, через которого выполняется доставка.
+     * @param messageFactory Источник писем для получателей.
+     * @param maxConcurrencyPerHost Максимальное число одновременных отправок на SMTP сервер.
+     * @param maxQueuedMessages Максимальное число писем, принятых к отправке, но еще не отправленных.
+     */
+    public BulkEmailDispatcher(EmailSender emailSender, MessageSource messageFactory,
+                               int maxConcurrencyPerHost, int maxQueuedMessages) {
+        this(new AccountRouter(emailSender), messageFactory, maxConcurrencyPerHost, maxQueuedMessages, 1, result -> { }, new RetryPolicy(),
+                SendRateLimiter.fromSystemProperties());
+    }
+
+    /**
+     * Конструктор класса BulkEmailDispatcher для нескольких учетных записей со слушателем результатов.
+     *
+     * @param accountRouter Распределитель писем между учетными записями отправителей.
+     * @param messageFactory Источник писем для получателей.
+     * @param maxConcurrencyPerAccount Максимальное число одновременных отправок с одной учетной записи.
+     * @param maxQueuedMessages Максимальное число писем, принятых к отправке, но еще не отправленных.
+     * @param maxBatchSize Максимальное число получателей одного пакетного письма. Значение 1 отключает пакетный режим.
+     * @param resultListener Слушатель, получающий результат каждой отправки. Вызывается из рабочих потоков.
+     * @param retryPolicy Политика повторной отправки после временных ошибок.
+     * @param rateLimiter Ограничитель частоты отправки.
+     */
+    public BulkEmailDispatcher(AccountRouter accountRouter, MessageSource messageFactory,
+                               int maxConcurrencyPerAccount, int maxQueuedMessages, int maxBatchSize,
+                               Consumer<SendResult> resultListener, RetryPolicy retryPolicy,
+                               SendRateLimiter rateLimiter) {
+        if (maxConcurrencyPerAccount < 1 || maxQueuedMessages < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Параметры параллельной отправки должны быть положительными.");
+        }
+        this.accountRouter = accountRouter;
+        this.messageFactory = messageFactory;
+        this.resultListener = resultListener;
+        this.retryPolicy = retryPolicy;
+        this.rateLimiter = rateLimiter;
+        this.maxConcurrencyPerAccount = maxConcurrencyPerAccount;
+        this.maxBatchSize = maxBatchSize;
+        // Получатели в незаполненных пакетах занимают места в очереди, поэтому их число ограничено
+        // половиной очереди: иначе submit ждал бы места, которое освободится только после отправки этих пакетов.
+        this.maxBufferedRecipients = Math.max(1, maxQueuedMessages / 2);
+        this.queuePermits = new Semaphore(maxQueuedMessages);
+        int threads = maxConcurrencyPerAccount * accountRouter.size();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new DispatchThreadFactory("email-dispatch-"));
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new DispatchThreadFactory("email-retry-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.retryScheduler = scheduler;
+        SendMetrics.getInstance().setQueueDepthGauge(pending::get);
+    }
+
+    /**
+     * Ставит письмо получателю в очередь на отправку. Письмо создается в рабочем потоке.
+     *
+     * @param recipient Получатель письма.
+     * @return CompletableFuture, завершающийся результатом отправки этому получателю.
+     * @throws InterruptedException Если ожидание места в очереди было прервано.
+     */
+    public CompletableFuture<SendResult> submit(Recipient recipient) throws InterruptedException {
+        if (finished) {
+            throw new IllegalStateException("Прием писем для отправки уже завершен.");
+        }
+        queuePermits.acquire();
+        pending.incrementAndGet();
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        CompletableFuture<SendResult> delivered = future.whenComplete((result, error) -> onDelivered(result));
+        if (maxBatchSize == 1) {
+            attempt(recipient, 1, future);
+        } else {
+            addToBatch(new QueuedRecipient(recipient, future));
+        }
+        return delivered;
+    }
+
+    /**
+     * Завершает прием писем и возвращает CompletableFuture, который завершится,
+     * когда все принятые письма будут обработаны.
+     *
+     * @return CompletableFuture, завершающийся после обработки всех писем.
+     */
+    public CompletableFuture<Void> finish() {
+        finished = true;
+        flushBatches();
+        completeIfDone();
+        return completion;
+    }
+
+    /**
+     * Прекращает прием писем и останавливает рабочие потоки. Письма, еще не взятые в отправку,
+     * и отложенные повторы не отправляются: их результаты завершаются ошибкой {@link #STOPPED_MESSAGE}
+     * (см. {@link #isStopped(SendResult)}). Отправки, уже выполняемые рабочими потоками,
+     * завершаются, и их результаты передаются слушателю до возврата из метода. Рабочие потоки
+     * не прерываются: прерванная отправка могла быть уже принята сервером, и ее результат был бы потерян.
+     */
+    @Override
+    public void close() {
+        finished = true;
+        retryScheduler.shutdownNow();
+        int dropped = 0;
+        for (DispatchTask task : delayedTasks) {
+            if (delayedTasks.remove(task)) {
+                task.abandon(null);
+                dropped++;
+            }
+        }
+        executor.shutdown();
+        List<Runnable> notStarted = new ArrayList<>();
+        executor.getQueue().drainTo(notStarted);
+        dropped += abandon(notStarted);
+        if (dropped > 0) {
+            logger.info("Dropped {} queued and delayed sends on shutdown", dropped);
+        }
+        boolean interrupted = false;
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Sends still in progress after {} s; their results will not be recorded", CLOSE_TIMEOUT_SECONDS);
+                abandon(executor.shutdownNow());
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            abandon(executor.shutdownNow());
+        }
+        SendMetrics.getInstance().setQueueDepthGauge(() -> 0);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Проверяет, что письмо не отправлялось, потому что диспетчер был остановлен. Такое письмо
+     * можно отправить при следующем запуске рассылки.
+     *
+     * @param result Результат отправки.
+     * @return true, если письмо не отправлялось из-за остановки диспетчера.
+     */
+    static boolean isStopped(SendResult result) {
+        return !result.isSuccessful() && STOPPED_MESSAGE.equals(result.getError().getMessage());
+    }
+
+    /**
+     * Завершает ошибкой результаты задач, которые не будут выполнены.
+     *
+     * @param tasks Задачи, извлеченные из очереди рабочих потоков.
+     * @return Число задач.
+     */
+    private static int abandon(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            ((DispatchTask) task).abandon(null);
+        }
+        return tasks.size();
+    }
+
+    /**
+     * Передает задачу рабочим потокам. Если диспетчер уже остановлен, результаты задачи
+     * завершаются ошибкой.
+     *
+     * @param task Задача отправки.
+     */
+    private void dispatch(DispatchTask task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.abandon(e);
+        }
+    }
+
+    /**
+     * Откладывает задачу в планировщик. Отложенная задача запоминается, чтобы при остановке диспетчера
+     * завершить ошибкой ее результаты: задачи, отмененные планировщиком, не выполняются.
+     * Задачу выполняет или отменяет тот, кто первым удалит ее из множества отложенных задач.
+     *
+     * @param task Задача, выполняемая по истечении задержки.
+     * @param delay Задержка.
+     * @param unit Единица измерения задержки.
+     */
+    private void schedule(DispatchTask task, long delay, TimeUnit unit) {
+        delayedTasks.add(task);
+        try {
+            retryScheduler.schedule(() -> {
+                if (delayedTasks.remove(task)) {
+                    task.run();
+                }
+            }, delay, unit);
+        } catch (RejectedExecutionException e) {
+            if (delayedTasks.remove(task)) {
+                task.abandon(e);
+            }
+        }
+    }
+
+    /**
+     * Добавляет получателя в пакет получателей с таким же текстом письма. Заполненный пакет отправляется;
+     * если в незаполненных пакетах накопилось слишком много получателей, отправляется самый старый пакет.
+     *
+     * @param queued Получатель и CompletableFuture его результата.
+     */
+    private void addToBatch(QueuedRecipient queued) {
+        List<QueuedRecipient> ready = null;
+        synchronized (openBatches) {
+            String key = messageFactory.renderKey(queued.recipient);
+            List<QueuedRecipient> batch = openBatches.computeIfAbsent(key, k -> new ArrayList<>());
+            batch.add(queued);
+            bufferedRecipients++;
+            if (batch.size() >= maxBatchSize) {
+                ready = openBatches.remove(key);
+            } else if (bufferedRecipients >= maxBufferedRecipients) {
+                Iterator<List<QueuedRecipient>> oldest = openBatches.values().iterator();
+                ready = oldest.next();
+                oldest.remove();
+            }
+            if (ready != null) {
+                bufferedRecipients -= ready.size();
+            }
+        }
+        if (ready != null) {
+            attemptBatch(ready);
+        }
+    }
+
+    /**
+     * Отправляет все незаполненные пакеты.
+     */
+    private void flushBatches() {
+        List<List<QueuedRecipient>> batches;
+        synchronized (openBatches) {
+            batches = new ArrayList<>(openBatches.values());
+            openBatches.clear();
+            bufferedRecipients = 0;
+        }
+        for (List<QueuedRecipient> batch : batches) {
+            attemptBatch(batch);
+        }
+    }
+
+    /**
+     * Передает отправку пакетного письма рабочему потоку. Пакет из одного получателя отправляется
+     * обычным письмом. Получатели, которым пакетное письмо не было доставлено, отправляются
+     * по отдельности с обычными повторами; при ошибке учетной записи пакет передается другой учетной записи.
+     *
+     * @param batch Получатели с одинаковым текстом письма.
+     */
+    private void attemptBatch(List<QueuedRecipient> batch) {
+        if (batch.size() == 1) {
+            attempt(batch.get(0).recipient, 1, batch.get(0).future);
+            return;
+        }
+        dispatch(new DispatchTask(batch, () -> {
+            EmailSender emailSender = accountRouter.next();
+            if (emailSender == null) {
+                for (QueuedRecipient queued : batch) {
+                    queued.future.complete(SendResult.failure(queued.recipient.getEmail(),
+                            new MessagingException("Нет доступных учетных записей для отправки.")));
+                }
+                return;
+            }
+            MessagingException error = deliverBatch(batch, emailSender);
+            if (error == null) {
+                rateLimiter.onSuccess(emailSender.getUsername());
+                for (QueuedRecipient queued : batch) {
+                    queued.future.complete(SendResult.success(queued.recipient.getEmail()));
+                }
+                return;
+            }
+            if (SmtpErrorClassifier.isAccountFailure(error) && !executor.isShutdown()) {
+                accountRouter.disable(emailSender, error.getMessage());
+                attemptBatch(batch);
+                return;
+            }
+            if (SmtpErrorClassifier.classify(error) == SmtpFailureType.THROTTLED) {
+                rateLimiter.onThrottled(emailSender.getUsername());
+            }
+            Set<String> delivered = sentAddresses(error);
+            for (QueuedRecipient queued : batch) {
+                if (delivered.contains(queued.recipient.getEmail())) {
+                    queued.future.complete(SendResult.success(queued.recipient.getEmail()));
+                } else {
+                    attempt(queued.recipient, 1, queued.future);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Отправляет одно письмо всем получателям пакета с соблюдением ограничений на частоту отправки
+     * и на число одновременных отправок с учетной записи. Квота частоты расходуется на каждого получателя.
+     *
+     * @param batch Получатели с одинаковым текстом письма.
+     * @param emailSender Отправитель, выбранный для письма.
+     * @return null при успешной отправке всем получателям, иначе исключение, возникшее при отправке.
+     */
+    private MessagingException deliverBatch(List<QueuedRecipient> batch, EmailSender emailSender) {
+        Semaphore permits = senderPermits.computeIfAbsent(emailSender, sender -> new Semaphore(maxConcurrencyPerAccount));
+        Address[] addresses = new Address[batch.size()];
+        try {
+            for (int i = 0; i < addresses.length; i++) {
+                String email = batch.get(i).recipient.getEmail();
+                rateLimiter.acquire(emailSender.getUsername(), email);
+                addresses[i] = new InternetAddress(email);
+            }
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new MessagingException("Отправка прервана.", e);
+        } catch (MessagingException e) {
+            return e;
+        }
+        long start = System.nanoTime();
+        try {
+            emailSender.send(messageFactory.createShared(batch.get(0).recipient), addresses);
+            long latency = System.nanoTime() - start;
+            for (QueuedRecipient queued : batch) {
+                SendEventLog.sent(queued.recipient.getEmail(), emailSender.getUsername(), 1, latency);
+            }
+            logger.debug("Batch email sent to {} recipients", batch.size());
+            return null;
+        } catch (MessagingException e) {
+            long latency = System.nanoTime() - start;
+            Set<String> delivered = sentAddresses(e);
+            for (QueuedRecipient queued : batch) {
+                String email = queued.recipient.getEmail();
+                if (delivered.contains(email)) {
+                    SendEventLog.sent(email, emailSender.getUsername(), 1, latency);
+                } else {
+                    MessagingException error = SmtpErrorClassifier.recipientError(e, email);
+                    SendEventLog.failed(email, emailSender.getUsername(), 1, latency, error);
+                    SendMetrics.getInstance().recordFailedAttempt(SmtpErrorClassifier.replyCode(error));
+                }
+            }
+            logger.warn("Failed to send batch email to {} recipients: {}", batch.size(), e.getMessage());
+            return e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Возвращает адреса, которым письмо было доставлено при частичной отправке.
+     *
+     * @param error Исключение, возникшее при отправке.
+     * @return Множество адресов, которым письмо было доставлено.
+     */
+    private static Set<String> sentAddresses(MessagingException error) {
+        Set<String> sent = new HashSet<>();
+        if (error instanceof SendFailedException && ((SendFailedException) error).getValidSentAddresses() != null) {
+            for (Address address : ((SendFailedException) error).getValidSentAddresses()) {
+                sent.add(((InternetAddress) address).getAddress());
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Резервирует разрешение на отправку письма на домен получателя и передает попытку отправки
+     * рабочему потоку. Если разрешение наступит позже, попытка откладывается в планировщик
+     * и передается рабочему потоку в срок.
+     *
+     * @param recipient Получатель письма.
+     * @param attempt Номер попытки, начиная с 1.
+     * @param future CompletableFuture, завершаемый окончательным результатом отправки.
+     */
+    private void attempt(Recipient recipient, int attempt, CompletableFuture<SendResult> future) {
+        long waitNanos = rateLimiter.reserveDomain(recipient.getEmail());
+        if (waitNanos <= 0) {
+            execute(recipient, attempt, future);
+            return;
+        }
+        schedule(new DispatchTask(recipient, future, () -> execute(recipient, attempt, future)), waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Передает попытку отправки письма рабочему потоку. При временной ошибке попытка
+     * откладывается в планировщик повторов, иначе future завершается результатом.
+     *
+     * @param recipient Получатель письма.
+     * @param attempt Номер попытки, начиная с 1.
+     * @param future CompletableFuture, завершаемый окончательным результатом отправки.
+     */
+    private void execute(Recipient recipient, int attempt, CompletableFuture<SendResult> future) {
+        dispatch(new DispatchTask(recipient, future, () -> {
+            EmailSender emailSender = accountRouter.next();
+            if (emailSender == null) {
+                future.complete(SendResult.failure(recipient.getEmail(),
+                        new MessagingException("Нет доступных учетных записей для отправки.")));
+                return;
+            }
+            SendResult result = deliver(recipient, attempt, emailSender);
+            if (result.isSuccessful()) {
+                rateLimiter.onSuccess(emailSender.getUsername());
+                future.complete(result);
+                return;
+            }
+            if (SmtpErrorClassifier.isAccountFailure(result.getError()) && !executor.isShutdown()) {
+                accountRouter.disable(emailSender, result.getError().getMessage());
+                // Разрешение на домен не израсходовано: письмо не было принято сервером.
+                execute(recipient, attempt, future);
+                return;
+            }
+            SmtpFailureType failureType = SmtpErrorClassifier.classify(result.getError());
+            if (failureType == SmtpFailureType.THROTTLED) {
+                rateLimiter.onThrottled(emailSender.getUsername());
+            }
+            if (!retryPolicy.shouldRetry(attempt, failureType) || executor.isShutdown()) {
+                if (attempt > 1) {
+                    logger.warn("Giving up on {} after {} attempts", recipient.getEmail(), attempt);
+                }
+                future.complete(result);
+                return;
+            }
+            long delay = retryPolicy.delayMillis(attempt, failureType);
+            logger.info("Retrying {} in {} ms after {} failure (attempt {})", recipient.getEmail(), delay, failureType, attempt);
+            schedule(new DispatchTask(recipient, future, () -> attempt(recipient, attempt + 1, future)),
+                    delay, TimeUnit.MILLISECONDS);
+        }));
+    }
+
+    /**
+     * Отправляет одно письмо с соблюдением ограничений на частоту отправки с учетной записи и на число
+     * одновременных отправок с нее. Разрешение на домен получателя резервируется до передачи попытки рабочему потоку.
+     *
+     * @param recipient Получатель письма.
+     * @param attempt Номер попытки, начиная с 1.
+     * @param emailSender Отправитель, выбранный для письма.
+     * @return Результат отправки.
+     */
+    private SendResult deliver(Recipient recipient, int attempt, EmailSender emailSender) {
+        String toEmail = recipient.getEmail();
+        Semaphore permits = senderPermits.computeIfAbsent(emailSender, sender -> new Semaphore(maxConcurrencyPerAccount));
+        try {
+            rateLimiter.acquireAccount(emailSender.getUsername());
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SendResult.failure(toEmail, new MessagingException("Отправка прервана.", e));
+        }
+        long start = System.nanoTime();
+        try {
+            emailSender.send(messageFactory.create(recipient));
+            SendEventLog.sent(toEmail, emailSender.getUsername(), attempt, System.nanoTime() - start);
+            logger.debug("Email sent to: {}", toEmail);
+            return SendResult.success(toEmail);
+        } catch (MessagingException e) {
+            SendEventLog.failed(toEmail, emailSender.getUsername(), attempt, System.nanoTime() - start, e);
+            SendMetrics.getInstance().recordFailedAttempt(SmtpErrorClassifier.replyCode(e));
+            logger.warn("Failed to send email to {}: {}", toEmail, e.getMessage());
+            return SendResult.failure(toEmail, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Передает результат отправки слушателю и освобождает место в очереди.
+     *
+     * @param result Результат отправки.
+     */
+    private void onDelivered(SendResult result) {
+        if (result != null) {
+            SendMetrics.getInstance().recordResult(result);
+            try {
+                resultListener.accept(result);
+            } catch (RuntimeException e) {
+                logger.error("Send result listener failed for {}", result.getRecipient(), e);
+            }
+        }
+        queuePermits.release();
+        pending.decrementAndGet();
+        completeIfDone();
+    }
+
+    /**
+     * Завершает общий CompletableFuture, если прием писем закончен и все письма обработаны.
+     */
+    private void completeIfDone() {
+        if (finished && pending.get() == 0 && !completion.isDone()) {
+            completion.complete(null);
+        }
+    }
+
+    /**
+     * Получатель, принятый к отправке, и CompletableFuture его результата.
+     */
+    private static class QueuedRecipient {
+        private final Recipient recipient;
+        private final CompletableFuture<SendResult> future;
+
+        QueuedRecipient(Recipient recipient, CompletableFuture<SendResult> future) {
+            this.recipient = recipient;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Задача отправки вместе с получателями, результаты которых она завершает. Если задача не будет
+     * выполнена из-за остановки диспетчера, их результаты завершаются ошибкой, чтобы ожидающие
+     * их не ждали бесконечно и место в очереди освободилось.
+     */
+    private static class DispatchTask implements Runnable {
+        private final List<QueuedRecipient> recipients;
+        private final Runnable action;
+
+        DispatchTask(List<QueuedRecipient> recipients, Runnable action) {
+            this.recipients = recipients;
+            this.action = action;
+        }
+
+        DispatchTask(Recipient recipient, CompletableFuture<SendResult> future, Runnable action) {
+            this(List.of(new QueuedRecipient(recipient, future)), action);
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+
+        /**
+         * Завершает результаты получателей задачи ошибкой остановки рассылки.
+         *
+         * @param cause Причина, по которой задача не выполнена, или null.
+         */
+        void abandon(Exception cause) {
+            for (QueuedRecipient queued : recipients) {
+                queued.future.complete(SendResult.failure(queued.recipient.getEmail(),
+                        new MessagingException(STOPPED_MESSAGE, cause)));
+            }
+        }
+    }
+
+    /**
+     * Фабрика рабочих потоков рассылки и планировщика повторов. Потоки являются демонами, чтобы не мешать завершению приложения.
+     */
+    private static class DispatchThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String namePrefix;
+
+        DispatchThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.appemail;
+
+/**
+ * Класс CampaignProgress — снимок хода рассылки: число отправленных писем, ошибок,
+ * общее число писем и время с начала рассылки.
+ */
+public class CampaignProgress {
+
+    private final int sent;
+    private final int failed;
+    private final int total;
+    private final long elapsedNanos;
+
+    /**
+     * Конструктор класса CampaignProgress.
+     *
+     * @param sent Число отправленных писем.
+     * @param failed Число писем, которые не удалось отправить.
+     * @param total Общее число писем, известное на данный момент.
+     * @param elapsedNanos Время с начала рассылки в наносекундах.
+     */
+    public CampaignProgress(int sent, int failed, int total, long elapsedNanos) {
+        this.sent = sent;
+        this.failed = failed;
+        this.total = total;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Число отправленных писем.
+     */
+    public int getSent() {
+        return sent;
+    }
+
+    /**
+     * @return Число писем, которые не удалось отправить.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return Общее число писем, известное на данный момент.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Число обработанных писем: отправленных и с ошибкой.
+     */
+    public int getDone() {
+        return sent + failed;
+    }
+
+    /**
+     * @return Время с начала рассылки в наносекундах.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Средняя скорость обработки писем, писем в секунду.
+     */
+    public double getRate() {
+        return getDone() / Math.max(elapsedNanos / 1e9, 1e-3);
+    }
+
+    /**
+     * Формирует описание хода рассылки для пользователя: отправлено, ошибки, осталось,
+     * скорость и оставшееся время.
+     *
+     * @return Текст описания.
+     */
+    public String describe() {
+        int remaining = total - getDone();
+        double rate = getRate();
+        String eta = rate > 0 ? String.format("%.0f с", remaining / rate) : "—";
+        return String.format("Отправлено: %d, ошибок: %d, осталось: %d, скорость: %.1f писем/с, осталось времени: %s",
+                sent, failed, remaining, rate, eta);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.appemail;
+
+/**
+ * Интерфейс CampaignProgressListener получает сведения о ходе рассылки.
+ * Метод может вызываться из рабочих потоков рассылки.
+ */
+@FunctionalInterface
+public interface CampaignProgressListener {
+
+    /**
+     * Сообщает о ходе рассылки.
+     *
+     * @param progress Снимок хода рассылки.
+     */
+    void progressChanged(CampaignProgress progress);
+}
@@ -0,0 +1,105 @@
+package com.example.appemail;
+
+import java.util.List;
+
+/**
+ * Класс CampaignResult хранит итоги рассылки: число отправленных и неотправленных писем,
+ * первые неудачные отправки, число пропущенных адресов, продолжительность рассылки и признак ее отмены.
+ * Результаты по каждому получателю не хранятся; они записываются в журнал отправки
+ * ({@link SendJournal}) и журнал событий отправки ({@link SendEventLog}).
+ */
+public class CampaignResult {
+
+    private final int sentCount;
+    private final int failedCount;
+    private final List<SendResult> failures;
+    private final int duplicateCount;
+    private final int skippedCount;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+
+    /**
+     * Конструктор класса CampaignResult.
+     *
+     * @param sentCount Число отправленных писем.
+     * @param failedCount Число писем, которые не удалось отправить.
+     * @param failures Первые неудачные отправки; их может быть меньше, чем failedCount.
+     * @param duplicateCount Число повторяющихся адресов, которым письмо не отправлялось повторно.
+     * @param skippedCount Число получателей, пропущенных, так как письмо им уже было отправлено.
+     * @param elapsedNanos Продолжительность рассылки в наносекундах.
+     * @param cancelled true, если рассылка была отменена до передачи на отправку всех получателей.
+     */
+    public CampaignResult(int sentCount, int failedCount, List<SendResult> failures,
+                          int duplicateCount, int skippedCount, long elapsedNanos, boolean cancelled) {
+        this.sentCount = sentCount;
+        this.failedCount = failedCount;
+        this.failures = List.copyOf(failures);
+        this.duplicateCount = duplicateCount;
+        this.skippedCount = skippedCount;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return Число писем, для которых получен результат отправки.
+     */
+    public int getTotalCount() {
+        return sentCount + failedCount;
+    }
+
+    /**
+     * @return Число отправленных писем.
+     */
+    public int getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * @return Число писем, которые не удалось отправить.
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return Первые неудачные отправки, не более {@link CampaignRunner#MAX_REPORTED_FAILURES}.
+     */
+    public List<SendResult> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return Число неудачных отправок, не вошедших в {@link #getFailures()}.
+     */
+    public int getOmittedFailureCount() {
+        return failedCount - failures.size();
+    }
+
+    /**
+     * @return Число повторяющихся адресов, которым письмо не отправлялось повторно.
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * @return Число получателей, пропущенных, так как письмо им уже было отправлено.
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return Продолжительность рассылки в наносекундах.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return true, если рассылка была отменена до передачи на отправку всех получателей.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
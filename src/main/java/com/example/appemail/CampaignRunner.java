@@ -0,0 +1,296 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс CampaignRunner выполняет рассылку целиком: читает учетные данные, шаблон письма и адреса,
+ * отправляет письма и собирает итоги. Класс не зависит от JavaFX и используется как графическим
+ * интерфейсом ({@link EmailSendTask}), так и режимом командной строки ({@link CommandLineCampaign}).
+ * Получатели читаются из файла потоково и передаются на отправку по мере чтения, поэтому общее
+ * число писем уточняется по ходу рассылки. Результат отправки каждому получателю записывается
+ * в {@link SendJournal}; в режиме продолжения получатели, уже получившие письмо этой рассылки, пропускаются.
+ * Повторяющиеся адреса отбрасываются, а получатели группируются по домену ({@link RecipientPreprocessor}).
+ * Если задано системное свойство {@code appemail.batch.size}, получатели с одинаковым текстом письма
+ * отправляются пакетами указанного размера.
+ * Если путь к адресам указывает на каталог, получатели читаются из всех его файлов, включая новые
+ * ({@link RecipientDirectoryWatcher}), пока рассылка не будет остановлена методом {@link #cancel()}.
+ * Вложения ({@link #setAttachments(List)}) читаются и кодируются один раз перед началом рассылки
+ * и общие для всех писем ({@link SharedAttachment}).
+ * Если задано системное свойство {@code appemail.outbox=true}, письма готовятся заранее и проходят
+ * через исходящую очередь на диске ({@link Outbox}); письма, не доставленные до остановки рассылки,
+ * отправляются при следующем запуске той же рассылки.
+ * Ход рассылки передается слушателю не чаще, чем раз в {@link #PROGRESS_INTERVAL_MILLIS} миллисекунд.
+ */
+public class CampaignRunner {
+
+    private static final Logger logger = LogManager.getLogger(CampaignRunner.class);
+    static final long PROGRESS_INTERVAL_MILLIS = 100;
+    static final int MAX_REPORTED_FAILURES = 100;
+    private static final int DISPATCH_QUEUE_SIZE = 1000;
+    private static final String BATCH_SIZE_PROPERTY = "appemail.batch.size";
+    private static final String OUTBOX_PROPERTY = "appemail.outbox";
+    private static final CredentialsProvider credentialsProvider = new CredentialsProvider();
+
+    private final String subject;
+    private final String recipientsPath;
+    private final String templatePath;
+    private final String credentialsPath;
+    private final boolean resume;
+    private final OutputSink output;
+    private volatile CampaignProgressListener progressListener = progress -> { };
+    private volatile List<String> attachmentPaths = Collections.emptyList();
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final List<SendResult> reportedFailures = new ArrayList<>();
+    private final AtomicLong lastProgressNanos = new AtomicLong();
+    private volatile long startNanos;
+    private volatile int total;
+    private volatile boolean cancelled;
+
+    /**
+     * Конструктор класса CampaignRunner.
+     *
+     * @param subject Тема письма.
+     * @param recipientsPath Путь к файлу с адресами получателей.
+     * @param templatePath Путь к файлу с шаблоном письма.
+     * @param credentialsPath Путь к файлу с зашифрованными учетными данными.
+     * @param resume true, чтобы пропустить получателей, которым письмо этой рассылки уже было отправлено.
+     * @param output Приемник для вывода сообщений об ошибках чтения файлов и отправки.
+     */
+    public CampaignRunner(String subject, String recipientsPath, String templatePath, String credentialsPath,
+                          boolean resume, OutputSink output) {
+        this.subject = subject;
+        this.recipientsPath = recipientsPath;
+        this.templatePath = templatePath;
+        this.credentialsPath = credentialsPath;
+        this.resume = resume;
+        this.output = output;
+    }
+
+    /**
+     * Устанавливает слушателя хода рассылки.
+     *
+     * @param progressListener Слушатель хода рассылки.
+     */
+    public void setProgressListener(CampaignProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Устанавливает файлы, вкладываемые в каждое письмо рассылки.
+     *
+     * @param attachmentPaths Пути к файлам вложений.
+     */
+    public void setAttachments(List<String> attachmentPaths) {
+        this.attachmentPaths = List.copyOf(attachmentPaths);
+    }
+
+    /**
+     * Прекращает прием новых получателей. Письма, уже переданные на отправку, дожидаются результата.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Читает учетные данные, адреса и шаблон письма, отправляет письма всем получателям
+     * и возвращает итоги рассылки.
+     *
+     * @return Итоги рассылки.
+     * @throws Exception Если рассылку не удалось подготовить или она была прервана.
+     */
+    public CampaignResult run() throws Exception {
+        List<SmtpAccount> accounts = credentialsProvider.getAccounts(credentialsPath, output);
+        if (accounts.isEmpty()) {
+            throw new IllegalStateException("Не удалось получить учетные данные для отправки сообщений.");
+        }
+        LetterReader letterReader = new LetterReader();
+        String letterContent = letterReader.readLetterContent(templatePath, output);
+        MessageTemplate messageTemplate = MessageTemplate.compile(letterContent);
+        if (messageTemplate.getPlaceholders().isEmpty()) {
+            output.appendText("Плейсхолдер {name} не найден в содержимом письма.\n");
+        }
+        List<SharedAttachment> attachments = encodeAttachments();
+
+        logger.info("Beginning to send emails. Accounts: {}", accounts.size());
+        SendMetrics.getInstance().reset();
+        startNanos = System.nanoTime();
+        publishProgress(true);
+        boolean watchDirectory = Files.isDirectory(Paths.get(recipientsPath));
+        // При чтении из каталога получатели не должны ждать заполнения окна группировки до появления новых файлов.
+        RecipientPreprocessor preprocessor = watchDirectory ? new RecipientPreprocessor(1) : new RecipientPreprocessor();
+        int skipped = 0;
+        String campaignId = SendJournal.campaignId(subject, letterContent);
+        MimeMessageFactory messageFactory = new MimeMessageFactory(subject, messageTemplate, attachments);
+        int batchSize = Math.max(1, Integer.getInteger(BATCH_SIZE_PROPERTY, 1));
+        // Ресурсы закрываются в обратном порядке: диспетчер закрывается первым и дожидается отправок,
+        // уже взятых в работу, поэтому их результаты успевают попасть в исходящую очередь и журнал.
+        try (SendJournal sendJournal = SendJournal.open(SendJournal.DEFAULT_PATH, campaignId);
+             Outbox outbox = Boolean.getBoolean(OUTBOX_PROPERTY) ? new Outbox(OutboxSpool.open(Outbox.DEFAULT_DIRECTORY.resolve(campaignId),
+                     OutboxSpool.DEFAULT_MAX_PENDING, OutboxSpool.DEFAULT_SEGMENT_SIZE), messageFactory) : null;
+             AccountRouter accountRouter = new AccountRouter(accounts, EmailSender.DEFAULT_MAX_CONNECTIONS);
+             BulkEmailDispatcher dispatcher = new BulkEmailDispatcher(accountRouter, outbox != null ? outbox : messageFactory,
+                     EmailSender.DEFAULT_MAX_CONNECTIONS, DISPATCH_QUEUE_SIZE, outbox != null ? 1 : batchSize,
+                     result -> {
+                         sendJournal.record(result);
+                         if (outbox != null) {
+                             outbox.onResult(result);
+                         }
+                         onResult(result);
+                     },
+                     new RetryPolicy(), SendRateLimiter.fromSystemProperties());
+             Stream<Recipient> recipients = preprocessor.prepare(openRecipients(watchDirectory))) {
+            if (outbox != null) {
+                total += outbox.getRecoveredCount();
+                outbox.start(dispatcher);
+            }
+            boolean fieldsChecked = false;
+            Iterator<Recipient> iterator = recipients.iterator();
+            while (iterator.hasNext() && !cancelled) {
+                Recipient recipient = iterator.next();
+                if (resume && sendJournal.isCompleted(recipient.getEmail())) {
+                    skipped++;
+                    continue;
+                }
+                if (outbox != null && outbox.isRecovered(recipient.getEmail())) {
+                    continue;
+                }
+                if (!fieldsChecked) {
+                    reportMissingFields(messageTemplate, recipient);
+                    fieldsChecked = true;
+                }
+                total++;
+                if (outbox != null) {
+                    outbox.enqueue(recipient);
+                } else {
+                    dispatcher.submit(recipient);
+                }
+            }
+            int duplicateCount = preprocessor.getDuplicateCount();
+            if (duplicateCount > 0) {
+                logger.info("Skipped {} duplicate recipient addresses", duplicateCount);
+            }
+            if (skipped > 0) {
+                output.appendText("Пропущено получателей, уже получивших письмо этой рассылки:" + " " + skipped + "\n");
+                logger.info("Skipped {} recipients already completed in the send journal", skipped);
+            }
+            if (total == 0 && skipped == 0) {
+                output.appendText("Нет корректных адресов электронной почты в файле.\n");
+            }
+            if (outbox != null) {
+                outbox.finish(!cancelled);
+            }
+            dispatcher.finish().get();
+            CampaignResult campaignResult;
+            synchronized (reportedFailures) {
+                campaignResult = new CampaignResult(sent.get(), failed.get(), reportedFailures, duplicateCount, skipped,
+                        System.nanoTime() - startNanos, cancelled);
+            }
+            publishProgress(true);
+            logger.info("Sending finished. Sent: {}, failed: {}", sent.get(), failed.get());
+            logger.info("Send metrics:{}{}", System.lineSeparator(), SendMetrics.getInstance().summary());
+            return campaignResult;
+        }
+    }
+
+    /**
+     * Читает и кодирует вложения рассылки.
+     *
+     * @return Вложения, общие для всех писем рассылки.
+     * @throws IOException Если файл вложения не удалось прочитать.
+     */
+    private List<SharedAttachment> encodeAttachments() throws IOException {
+        List<SharedAttachment> attachments = new ArrayList<>(attachmentPaths.size());
+        for (String attachmentPath : attachmentPaths) {
+            try {
+                attachments.add(SharedAttachment.encode(Paths.get(attachmentPath)));
+            } catch (IOException e) {
+                throw new IOException("Не удалось прочитать вложение:" + " " + attachmentPath, e);
+            }
+        }
+        return attachments;
+    }
+
+    /**
+     * Открывает поток получателей из файла или из каталога с файлами.
+     *
+     * @param watchDirectory true, если путь к адресам указывает на каталог.
+     * @return Поток получателей.
+     * @throws IOException Если файл или каталог не удалось открыть.
+     */
+    private Stream<Recipient> openRecipients(boolean watchDirectory) throws IOException {
+        EmailReader emailReader = new EmailReader();
+        if (!watchDirectory) {
+            return emailReader.streamRecipients(recipientsPath, output);
+        }
+        Path directory = Paths.get(recipientsPath);
+        logger.info("Watching {} for recipient files", directory);
+        return new RecipientDirectoryWatcher(directory, emailReader, output, () -> cancelled).recipients();
+    }
+
+    /**
+     * Сообщает о плейсхолдерах шаблона, для которых в файле адресов нет столбцов.
+     *
+     * @param messageTemplate Шаблон письма.
+     * @param recipient Первый прочитанный получатель.
+     */
+    private void reportMissingFields(MessageTemplate messageTemplate, Recipient recipient) {
+        for (String placeholder : messageTemplate.getPlaceholders()) {
+            if (recipient.getField(placeholder) == null) {
+                output.appendText("Плейсхолдер {" + placeholder + "} не найден среди столбцов файла адресов.\n");
+            }
+        }
+    }
+
+    /**
+     * Учитывает результат отправки одному получателю. Из неудачных отправок сохраняются только первые
+     * {@link #MAX_REPORTED_FAILURES}, чтобы объем памяти не рос вместе с размером рассылки.
+     *
+     * @param result Результат отправки.
+     */
+    private void onResult(SendResult result) {
+        if (result.isSuccessful()) {
+            sent.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+            synchronized (reportedFailures) {
+                if (reportedFailures.size() < MAX_REPORTED_FAILURES) {
+                    reportedFailures.add(result);
+                }
+            }
+        }
+        publishProgress(false);
+    }
+
+    /**
+     * Передает слушателю ход рассылки, пропуская обновления, пришедшие чаще заданного интервала.
+     *
+     * @param force true, чтобы передать ход рассылки независимо от интервала.
+     */
+    private void publishProgress(boolean force) {
+        long now = System.nanoTime();
+        long last = lastProgressNanos.get();
+        if (!force && now - last < TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MILLIS)) {
+            return;
+        }
+        if (!force && !lastProgressNanos.compareAndSet(last, now)) {
+            return;
+        }
+        progressListener.progressChanged(new CampaignProgress(sent.get(), failed.get(), total, now - startNanos));
+    }
+}
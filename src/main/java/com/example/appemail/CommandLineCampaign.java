@@ -0,0 +1,242 @@
+package com.example.appemail;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс CommandLineCampaign выполняет рассылку из командной строки без графического интерфейса
+ * и без запуска JavaFX, что позволяет запускать рассылки на сервере и по расписанию.
+ * Ход рассылки выводится в поток ошибок, а итоги — в стандартный вывод одной строкой JSON.
+ *
+ * Параметры: {@code --cli --subject ТЕМА [--recipients ФАЙЛ] [--template ФАЙЛ] [--credentials ФАЙЛ]
+ * [--attachment ФАЙЛ]... [--resume]}.
+ * Файлы ищутся в файловой системе, а затем среди ресурсов приложения. Если в {@code --recipients}
+ * указан каталог, рассылка читает все его файлы, включая новые, и продолжается до Ctrl+C.
+ * Вложения ({@code --attachment}, можно указать несколько раз) читаются только из файловой системы.
+ * Код завершения: 0 — все письма отправлены, 1 — часть писем не отправлена, 2 — рассылку не удалось выполнить.
+ */
+public class CommandLineCampaign {
+
+    private static final Logger logger = LogManager.getLogger(CommandLineCampaign.class);
+
+    static final String CLI_OPTION = "--cli";
+    private static final long CONSOLE_PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_ERROR = 2;
+
+    private String subject;
+    private String recipientsPath = "emails.txt";
+    private String templatePath = "message.txt";
+    private String credentialsPath = "logpass.txt";
+    private final List<String> attachmentPaths = new ArrayList<>();
+    private boolean resume;
+
+    /**
+     * Точка входа режима командной строки.
+     *
+     * @param args Аргументы командной строки.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, new ConsoleOutputSink()));
+    }
+
+    /**
+     * Разбирает аргументы, выполняет рассылку и выводит итоги.
+     *
+     * @param args Аргументы командной строки.
+     * @param summaryStream Поток для вывода итогов в формате JSON.
+     * @param output Приемник для вывода сообщений и хода рассылки.
+     * @return Код завершения.
+     */
+    static int run(String[] args, PrintStream summaryStream, OutputSink output) {
+        CommandLineCampaign campaign = new CommandLineCampaign();
+        try {
+            campaign.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            output.appendText(e.getMessage() + "\n" + usage());
+            return EXIT_ERROR;
+        }
+        return campaign.execute(summaryStream, output);
+    }
+
+    /**
+     * Разбирает аргументы командной строки.
+     *
+     * @param args Аргументы командной строки.
+     * @throws IllegalArgumentException Если аргументы заданы неверно.
+     */
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case CLI_OPTION:
+                    break;
+                case "--resume":
+                    resume = true;
+                    break;
+                case "--subject":
+                    subject = value(args, ++i);
+                    break;
+                case "--recipients":
+                    recipientsPath = value(args, ++i);
+                    break;
+                case "--template":
+                    templatePath = value(args, ++i);
+                    break;
+                case "--credentials":
+                    credentialsPath = value(args, ++i);
+                    break;
+                case "--attachment":
+                    attachmentPaths.add(value(args, ++i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный параметр:" + " " + args[i]);
+            }
+        }
+        if (subject == null) {
+            throw new IllegalArgumentException("Не указана тема письма.");
+        }
+    }
+
+    /**
+     * Выполняет рассылку. При завершении процесса (например, по Ctrl+C) прием новых получателей
+     * прекращается, и процесс дожидается результатов уже отправляемых писем, чтобы они попали в журнал.
+     *
+     * @param summaryStream Поток для вывода итогов в формате JSON.
+     * @param output Приемник для вывода сообщений и хода рассылки.
+     * @return Код завершения.
+     */
+    private int execute(PrintStream summaryStream, OutputSink output) {
+        CampaignRunner runner = new CampaignRunner(subject, recipientsPath, templatePath, credentialsPath, resume, output);
+        runner.setAttachments(attachmentPaths);
+        long[] lastPrinted = {0};
+        runner.setProgressListener(progress -> {
+            long now = System.nanoTime();
+            synchronized (lastPrinted) {
+                if (now - lastPrinted[0] >= CONSOLE_PROGRESS_INTERVAL_NANOS) {
+                    lastPrinted[0] = now;
+                    output.appendText(progress.describe() + "\n");
+                }
+            }
+        });
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            runner.cancel();
+            try {
+                finished.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "campaign-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        try {
+            CampaignResult result = runner.run();
+            for (SendResult sendResult : result.getFailures()) {
+                output.appendText(EmailSender.describeFailure(sendResult.getError()) + "\n");
+            }
+            if (result.getOmittedFailureCount() > 0) {
+                output.appendText("Не показано ошибок отправки:" + " " + result.getOmittedFailureCount() + "\n");
+            }
+            summaryStream.println(toJson(result));
+            summaryStream.flush();
+            return result.getFailedCount() == 0 ? EXIT_OK : EXIT_FAILURES;
+        } catch (Exception e) {
+            logger.error("Command line campaign failed", e);
+            output.appendText("Рассылка прервана:" + " " + e.getMessage() + "\n");
+            return EXIT_ERROR;
+        } finally {
+            finished.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Процесс уже завершается, и ловушка выполняется.
+            }
+        }
+    }
+
+    /**
+     * Формирует итоги рассылки в формате JSON. В {@code failures} попадают только первые неудачные
+     * отправки, а число остальных указывается в {@code omittedFailures}.
+     *
+     * @param result Итоги рассылки.
+     * @return Строка JSON.
+     */
+    static String toJson(CampaignResult result) {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"total\":").append(result.getTotalCount())
+                .append(",\"sent\":").append(result.getSentCount())
+                .append(",\"failed\":").append(result.getFailedCount())
+                .append(",\"duplicates\":").append(result.getDuplicateCount())
+                .append(",\"skipped\":").append(result.getSkippedCount())
+                .append(",\"elapsedMillis\":").append(TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()))
+                .append(",\"omittedFailures\":").append(result.getOmittedFailureCount())
+                .append(",\"cancelled\":").append(result.isCancelled())
+                .append(",\"failures\":[");
+        boolean first = true;
+        for (SendResult sendResult : result.getFailures()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"recipient\":");
+            appendJsonString(json, sendResult.getRecipient());
+            json.append(",\"type\":\"").append(SmtpErrorClassifier.classify(sendResult.getError())).append("\",\"error\":");
+            appendJsonString(json, sendResult.getError().getMessage());
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Не указано значение параметра" + " " + args[index - 1] + ".");
+        }
+        return args[index];
+    }
+
+    private static String usage() {
+        return "Использование: --cli --subject ТЕМА [--recipients ФАЙЛ] [--template ФАЙЛ] [--credentials ФАЙЛ] [--attachment ФАЙЛ]... [--resume]\n";
+    }
+}
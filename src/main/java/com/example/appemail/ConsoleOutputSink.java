@@ -0,0 +1,40 @@
+package com.example.appemail;
+
+import java.io.PrintStream;
+
+/**
+ * Класс ConsoleOutputSink выводит сообщения приложения в консоль. Используется в режиме
+ * командной строки, где стандартный вывод занят итогами рассылки, поэтому сообщения
+ * по умолчанию выводятся в поток ошибок.
+ */
+public class ConsoleOutputSink implements OutputSink {
+
+    private final PrintStream stream;
+
+    /**
+     * Создает приемник, выводящий сообщения в стандартный поток ошибок.
+     */
+    public ConsoleOutputSink() {
+        this(System.err);
+    }
+
+    /**
+     * Конструктор класса ConsoleOutputSink.
+     *
+     * @param stream Поток, в который выводятся сообщения.
+     */
+    public ConsoleOutputSink(PrintStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Выводит текст в консоль.
+     *
+     * @param text Текст для вывода.
+     */
+    @Override
+    public void appendText(String text) {
+        stream.print(text);
+        stream.flush();
+    }
+}
@@ -4,36 +4,139 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import javafx.scene.control.TextArea;
 
 /**
  * Класс CredentialsDecryptor используется для декодирования зашифрованных учетных данных.
  * Использует простой XOR-алгоритм для декодирования.
+ *
+ * Файл учетных данных может содержать одну учетную запись в двух строках (логин и пароль)
+ * или несколько учетных записей, по одной в строке:
+ * {@code логин пароль [сервер[:порт]] [вес]}, где логин и пароль зашифрованы, а сервер и вес
+ * указываются открытым текстом. Пустые строки и строки, начинающиеся с {@code #}, пропускаются.
+ *
+ * Пароли учетных записей не расшифровываются при чтении файла: учетная запись получает
+ * {@link EncryptedSecret}, который расшифровывает пароль только при открытии соединения.
+ * Ключ расшифровки предоставляет {@link KeySource}; по умолчанию используется встроенный ключ.
  */
 public class CredentialsDecryptor {
 
     private static final String DECRYPTION_KEY = "kursovayarabota";
+    static final KeySource DEFAULT_KEY_SOURCE = new StaticKeySource(DECRYPTION_KEY);
 
     /**
      * Читает и декодирует зашифрованные учетные данные из файла.
      *
      * @param filePath Путь к файлу с зашифрованными учетными данными.
-     * @param outputArea TextArea для вывода сообщений об ошибках.
+     * @param output Приемник для вывода сообщений об ошибках.
      * @return Список строк с декодированными учетными данными.
      */
-    public static List<String> readEncryptedCredentials(String filePath, TextArea outputArea) {
+    public static List<String> readEncryptedCredentials(String filePath, OutputSink output) {
         try {
             List<String> credentials = readLinesFromFile(filePath);
             validateCredentialsFormat(credentials);
             return decryptCredentials(credentials);
         } catch (IOException e) {
-            outputArea.appendText("Ошибка чтения файла:" + e.getMessage() + "\n");
+            output.appendText("Ошибка чтения файла:" + e.getMessage() + "\n");
         } catch (IllegalArgumentException e) {
-            outputArea.appendText(e.getMessage() + "\n");
+            output.appendText(e.getMessage() + "\n");
         }
         return new ArrayList<>();
     }
 
+    /**
+     * Читает и декодирует учетные записи отправителей из файла.
+     *
+     * @param filePath Путь к файлу с зашифрованными учетными данными.
+     * @param output Приемник для вывода сообщений об ошибках.
+     * @return Список учетных записей или пустой список, если файл не удалось прочитать.
+     */
+    public static List<SmtpAccount> readAccounts(String filePath, OutputSink output) {
+        return readAccounts(filePath, DEFAULT_KEY_SOURCE, output);
+    }
+
+    /**
+     * Читает учетные записи отправителей из файла, используя заданный источник ключа.
+     *
+     * @param filePath Путь к файлу с зашифрованными учетными данными.
+     * @param keySource Источник ключевого потока для расшифровки.
+     * @param output Приемник для вывода сообщений об ошибках.
+     * @return Список учетных записей или пустой список, если файл не удалось прочитать.
+     */
+    public static List<SmtpAccount> readAccounts(String filePath, KeySource keySource, OutputSink output) {
+        try {
+            List<String> lines = readLinesFromFile(filePath);
+            if (isLegacyFormat(lines)) {
+                List<SmtpAccount> accounts = new ArrayList<>();
+                accounts.add(new SmtpAccount(decrypt(lines.get(0).trim(), keySource), encryptedSecret(lines.get(1).trim(), keySource),
+                        EmailSender.DEFAULT_HOST, EmailSender.DEFAULT_PORT, SmtpAccount.DEFAULT_WEIGHT));
+                return accounts;
+            }
+            return parseAccounts(lines, keySource);
+        } catch (IOException e) {
+            output.appendText("Ошибка чтения файла:" + e.getMessage() + "\n");
+        } catch (IllegalArgumentException e) {
+            output.appendText(e.getMessage() + "\n");
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Проверяет, записана ли в файле одна учетная запись в двух строках.
+     *
+     * @param lines Строки файла.
+     * @return true, если файл состоит из двух строк без пробелов.
+     */
+    private static boolean isLegacyFormat(List<String> lines) {
+        return lines.size() == 2 && lines.stream().noneMatch(line -> line.trim().isEmpty() || line.trim().indexOf(' ') >= 0);
+    }
+
+    /**
+     * Разбирает строки файла с несколькими учетными записями.
+     *
+     * @param lines Строки файла.
+     * @param keySource Источник ключевого потока для расшифровки.
+     * @return Список учетных записей.
+     * @throws IllegalArgumentException Если строка имеет неверный формат или учетных записей нет.
+     */
+    private static List<SmtpAccount> parseAccounts(List<String> lines, KeySource keySource) {
+        List<SmtpAccount> accounts = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : lines) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length < 2 || parts.length > 4) {
+                throw new IllegalArgumentException("Неверный формат учетной записи в строке" + " " + lineNumber
+                        + ". Ожидается: логин пароль [сервер[:порт]] [вес].");
+            }
+            String host = EmailSender.DEFAULT_HOST;
+            int port = EmailSender.DEFAULT_PORT;
+            int weight = SmtpAccount.DEFAULT_WEIGHT;
+            try {
+                if (parts.length >= 3) {
+                    int colon = parts[2].lastIndexOf(':');
+                    host = colon < 0 ? parts[2] : parts[2].substring(0, colon);
+                    if (colon >= 0) {
+                        port = Integer.parseInt(parts[2].substring(colon + 1));
+                    }
+                }
+                if (parts.length == 4) {
+                    weight = Integer.parseInt(parts[3]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Неверный порт или вес учетной записи в строке" + " " + lineNumber + ".");
+            }
+            accounts.add(new SmtpAccount(decrypt(parts[0], keySource), encryptedSecret(parts[1], keySource), host, port, weight));
+        }
+        if (accounts.isEmpty()) {
+            throw new IllegalArgumentException("Файл пуст.");
+        }
+        return accounts;
+    }
+
     /**
      * Читает строки из файла и возвращает их в виде списка.
      *
@@ -43,7 +146,7 @@ public class CredentialsDecryptor {
      */
     private static List<String> readLinesFromFile(String filePath) throws IOException {
         List<String> lines = new ArrayList<>();
-        try (InputStream is = CredentialsDecryptor.class.getClassLoader().getResourceAsStream(filePath);
+        try (InputStream is = InputSources.open(filePath);
              BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -76,7 +179,7 @@ public class CredentialsDecryptor {
     private static List<String> decryptCredentials(List<String> encryptedCredentials) {
         List<String> decryptedCredentials = new ArrayList<>();
         for (String encryptedCredential : encryptedCredentials) {
-            decryptedCredentials.add(decrypt(encryptedCredential));
+            decryptedCredentials.add(decrypt(encryptedCredential, DEFAULT_KEY_SOURCE));
         }
         return decryptedCredentials;
     }
@@ -85,11 +188,22 @@ public class CredentialsDecryptor {
      * Декодирует зашифрованную строку.
      *
      * @param encryptedData Зашифрованная строка для декодирования.
+     * @param keySource Источник ключевого потока.
      * @return Декодированная строка.
      */
-    private static String decrypt(String encryptedData) {
-        byte[] inputBytes = convertHexStringToByteArray(encryptedData);
-        return xorDecrypt(inputBytes);
+    private static String decrypt(String encryptedData, KeySource keySource) {
+        return encryptedSecret(encryptedData, keySource).decryptToString();
+    }
+
+    /**
+     * Создает зашифрованное значение, которое расшифровывается только по требованию.
+     *
+     * @param encryptedData Зашифрованная шестнадцатеричная строка.
+     * @param keySource Источник ключевого потока.
+     * @return Зашифрованное значение.
+     */
+    private static EncryptedSecret encryptedSecret(String encryptedData, KeySource keySource) {
+        return new EncryptedSecret(convertHexStringToByteArray(encryptedData), keySource);
     }
 
     /**
@@ -103,24 +217,15 @@ public class CredentialsDecryptor {
         if (hexString == null || hexString.length() % 2 != 0) {
             throw new IllegalArgumentException("Неверный формат строки для шестнадцатеричного преобразования:" + hexString);
         }
-        byte[]data = new byte[hexString.length() / 2];
-        for (int i = 0; i < hexString.length(); i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4) + Character.digit(hexString.charAt(i+1), 16));
+        byte[] data = new byte[hexString.length() / 2];
+        for (int i = 0; i < data.length; i++) {
+            int high = Character.digit(hexString.charAt(2 * i), 16);
+            int low = Character.digit(hexString.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Неверный формат строки для шестнадцатеричного преобразования:" + hexString);
+            }
+            data[i] = (byte) ((high << 4) | low);
         }
         return data;
     }
-
-    /**
-     * Выполняет XOR-декодирование массива байтов.
-     *
-     * @param data Массив байтов для декодирования.
-     * @return Декодированная строка.
-     */
-    private static String xorDecrypt(byte[] data) {
-        StringBuilder output = new StringBuilder();
-        for (byte b : data) {
-            output.append((char) (b ^ DECRYPTION_KEY.charAt(output.length() % DECRYPTION_KEY.length())));
-        }
-        return output.toString();
-    }
 }
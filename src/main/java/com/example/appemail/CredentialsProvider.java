@@ -0,0 +1,112 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс CredentialsProvider кэширует учетные записи, прочитанные из файлов учетных данных.
+ * Файл читается и разбирается заново только при изменении времени его модификации;
+ * ресурсы из classpath не меняются во время работы и читаются один раз.
+ * Пароли в кэше хранятся зашифрованными (см. {@link EncryptedSecret}).
+ */
+public class CredentialsProvider {
+
+    private static final Logger logger = LogManager.getLogger(CredentialsProvider.class);
+
+    private final KeySource keySource;
+    private final Map<String, CachedAccounts> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Создает провайдер со встроенным ключом расшифровки.
+     */
+    public CredentialsProvider() {
+        this(CredentialsDecryptor.DEFAULT_KEY_SOURCE);
+    }
+
+    /**
+     * Конструктор класса CredentialsProvider.
+     *
+     * @param keySource Источник ключевого потока для расшифровки.
+     */
+    public CredentialsProvider(KeySource keySource) {
+        this.keySource = keySource;
+    }
+
+    /**
+     * Возвращает учетные записи из файла, используя кэш, если файл не изменился.
+     *
+     * @param filePath Путь к файлу с зашифрованными учетными данными.
+     * @param output Приемник для вывода сообщений об ошибках.
+     * @return Неизменяемый список учетных записей или пустой список, если файл не удалось прочитать.
+     */
+    public List<SmtpAccount> getAccounts(String filePath, OutputSink output) {
+        FileTime modified = lastModified(filePath);
+        CachedAccounts cached = cache.get(filePath);
+        if (cached != null && cached.isValid(modified)) {
+            logger.debug("Using cached credentials from {}", filePath);
+            return cached.accounts;
+        }
+        List<SmtpAccount> accounts = CredentialsDecryptor.readAccounts(filePath, keySource, output);
+        if (accounts.isEmpty()) {
+            cache.remove(filePath);
+            return accounts;
+        }
+        List<SmtpAccount> unmodifiable = Collections.unmodifiableList(accounts);
+        cache.put(filePath, new CachedAccounts(unmodifiable, modified));
+        logger.info("Loaded {} accounts from {}", accounts.size(), filePath);
+        return unmodifiable;
+    }
+
+    /**
+     * Удаляет из кэша все учетные записи.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    /**
+     * Возвращает время модификации файла или null, если файл находится в classpath.
+     *
+     * @param filePath Путь к файлу.
+     * @return Время модификации файла или null.
+     */
+    private static FileTime lastModified(String filePath) {
+        Path path = Paths.get(filePath);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            logger.warn("Failed to read the modification time of {}", filePath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Учетные записи из кэша вместе со временем модификации файла, из которого они прочитаны.
+     */
+    private static class CachedAccounts {
+        private final List<SmtpAccount> accounts;
+        private final FileTime modified;
+
+        CachedAccounts(List<SmtpAccount> accounts, FileTime modified) {
+            this.accounts = accounts;
+            this.modified = modified;
+        }
+
+        boolean isValid(FileTime currentModified) {
+            return modified == null ? currentModified == null : modified.equals(currentModified);
+        }
+    }
+}
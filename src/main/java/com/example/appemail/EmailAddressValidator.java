@@ -0,0 +1,89 @@
+package com.example.appemail;
+
+/**
+ * Класс EmailAddressValidator проверяет адреса электронной почты за один проход без регулярных
+ * выражений и без создания промежуточных строк. Принимает ровно те же адреса, что и шаблон
+ * {@code ^[\w-_.+]*[\w-_.]@([\w]+\.)+[\w]+[\w]$}, который использовался ранее:
+ * <ul>
+ *     <li>локальная часть непуста, состоит из букв латиницы, цифр и символов {@code _ - . +}
+ *     и не заканчивается символом {@code +};</li>
+ *     <li>доменная часть состоит как минимум из двух непустых меток из букв латиницы, цифр
+ *     и символа {@code _}, разделенных точками, причем последняя метка содержит не менее двух символов.</li>
+ * </ul>
+ */
+public final class EmailAddressValidator {
+
+    private EmailAddressValidator() {
+    }
+
+    /**
+     * Проверяет адрес электронной почты.
+     *
+     * @param email Адрес электронной почты для проверки.
+     * @return true, если адрес корректен, иначе false.
+     */
+    public static boolean isValid(CharSequence email) {
+        return isValid(email, 0, email.length());
+    }
+
+    /**
+     * Проверяет адрес электронной почты, расположенный в части последовательности символов.
+     *
+     * @param text Последовательность символов, содержащая адрес.
+     * @param start Индекс первого символа адреса.
+     * @param end Индекс, следующий за последним символом адреса.
+     * @return true, если адрес корректен, иначе false.
+     */
+    public static boolean isValid(CharSequence text, int start, int end) {
+        int at = start;
+        while (at < end && text.charAt(at) != '@') {
+            char c = text.charAt(at);
+            if (!isWordChar(c) && c != '-' && c != '.' && c != '+') {
+                return false;
+            }
+            at++;
+        }
+        if (at == start || at == end || text.charAt(at - 1) == '+') {
+            return false;
+        }
+        return isValidDomain(text, at + 1, end);
+    }
+
+    /**
+     * Проверяет доменную часть адреса.
+     *
+     * @param text Последовательность символов, содержащая адрес.
+     * @param start Индекс первого символа домена.
+     * @param end Индекс, следующий за последним символом домена.
+     * @return true, если доменная часть корректна, иначе false.
+     */
+    private static boolean isValidDomain(CharSequence text, int start, int end) {
+        int labels = 0;
+        int labelLength = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return false;
+                }
+                labels++;
+                labelLength = 0;
+            } else if (isWordChar(c)) {
+                labelLength++;
+            } else {
+                return false;
+            }
+        }
+        return labels > 0 && labelLength >= 2;
+    }
+
+    /**
+     * Проверяет, входит ли символ в класс {@code \w}: латинские буквы, цифры и подчеркивание.
+     *
+     * @param c Символ для проверки.
+     * @return true, если символ входит в класс, иначе false.
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
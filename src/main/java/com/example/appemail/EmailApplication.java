@@ -1,15 +1,22 @@
 package com.example.appemail;
 
 import javafx.application.Application;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.stage.Window;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -21,6 +28,8 @@ public class EmailApplication extends Application {
 
     private static final Logger logger = LogManager.getLogger(EmailApplication.class);
 
+    private TextAreaOutputSink outputSink;
+
     /**
      * Запускает приложение. Этот метод является точкой входа для приложения JavaFX.
      *
@@ -31,12 +40,24 @@ public class EmailApplication extends Application {
         setupStage(primaryStage);
         GridPane grid = createLayout();
         TextArea outputArea = createOutputArea();
-        addUIComponents(grid, outputArea);
-        primaryStage.setScene(new Scene(grid, 550, 300));
+        outputSink = new TextAreaOutputSink(outputArea);
+        addUIComponents(grid, outputArea, outputSink);
+        primaryStage.setScene(new Scene(grid, 550, 390));
         primaryStage.show();
         logger.info("EmailApplication started successfully");
     }
 
+    /**
+     * Останавливает вывод сообщений при закрытии приложения.
+     */
+    @Override
+    public void stop() {
+        if (outputSink != null) {
+            outputSink.stop();
+        }
+        logger.info("EmailApplication stopped");
+    }
+
     /**
      * Настраивает основное окно приложения.
      *
@@ -78,96 +99,171 @@ public class EmailApplication extends Application {
      *
      * @param grid Основной макет приложения, в который добавляются компоненты.
      * @param outputArea Область вывода, используемая для отображения результатов.
+     * @param output Приемник сообщений, выводящий их в область вывода.
      */
-    private void addUIComponents(GridPane grid, TextArea outputArea) {
+    private void addUIComponents(GridPane grid, TextArea outputArea, OutputSink output) {
         Button displayEmailsButton = new Button("Показать информацию о письмах");
         Button displayLetterButton = new Button("Показать содержимое письма");
         Button sendEmailsButton = new Button("Отправить письма");
+        Button cancelButton = new Button("Отменить");
+        cancelButton.setDisable(true);
+        CheckBox resumeCheckBox = new CheckBox("Продолжить прерванную рассылку");
+        Button attachButton = new Button("Вложения...");
+        Label attachmentsLabel = new Label();
+        List<String> attachmentPaths = new ArrayList<>();
         TextField subjectField = new TextField();
         subjectField.setPromptText("Введите тему сообщения");
+        ProgressBar progressBar = new ProgressBar(0);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        Label progressLabel = new Label();
 
-        displayEmailsButton.setOnAction(e -> displayEmailInfo(outputArea));
-        displayLetterButton.setOnAction(e -> displayLetterInfo(outputArea));
-        sendEmailsButton.setOnAction(e -> sendEmailsWithUserInput(subjectField.getText(), outputArea));
+        displayEmailsButton.setOnAction(e -> displayEmailInfo(displayEmailsButton.getScene().getWindow(), output));
+        displayLetterButton.setOnAction(e -> displayLetterInfo(output));
+        attachButton.setOnAction(e -> chooseAttachments(attachButton.getScene().getWindow(), attachmentPaths, attachmentsLabel));
+        sendEmailsButton.setOnAction(e -> {
+            EmailSendTask task = sendEmailsWithUserInput(subjectField.getText(), resumeCheckBox.isSelected(),
+                    attachmentPaths, output);
+            bindProgress(task, sendEmailsButton, cancelButton, progressBar, progressLabel, output);
+        });
 
         grid.add(displayEmailsButton, 0, 0);
         grid.add(displayLetterButton, 1, 0);
         grid.add(new Label("Тема сообщения:"), 0, 1);
         grid.add(subjectField, 1, 1);
         grid.add(sendEmailsButton, 2, 1);
-        grid.add(outputArea, 0, 2, 3, 1);
+        grid.add(attachButton, 0, 2);
+        grid.add(resumeCheckBox, 1, 2);
+        grid.add(attachmentsLabel, 2, 2);
+        grid.add(progressBar, 0, 3, 2, 1);
+        grid.add(cancelButton, 2, 3);
+        grid.add(progressLabel, 0, 4, 3, 1);
+        grid.add(outputArea, 0, 5, 3, 1);
         logger.debug("UI components added to the GridPane.");
     }
+
     /**
-     * Отображает информацию о письмах.
+     * Связывает элементы управления с ходом выполнения задачи рассылки.
      *
-     * @param outputArea Область вывода, в которую выводится информация о письмах.
+     * @param task Задача рассылки.
+     * @param sendEmailsButton Кнопка запуска рассылки, блокируемая на время выполнения.
+     * @param cancelButton Кнопка отмены рассылки.
+     * @param progressBar Индикатор хода рассылки.
+     * @param progressLabel Метка с подробной информацией о ходе рассылки.
+     * @param output Приемник, в который выводится сообщение об отмене рассылки.
      */
-    private void displayEmailInfo(TextArea outputArea) {
-        EmailReader emailReader = new EmailReader();
-        emailReader.printFileContent("emails.txt", outputArea);
-        int count = emailReader.countValidEmails("emails.txt", outputArea);
-        outputArea.appendText("Количество валидных адресов электронной почты:" + " " + emailReader.countValidEmails("emails.txt", outputArea) + "\n");
-        logger.info("Displayed email information. Valid email addresses: {}\", count");
+    private void bindProgress(EmailSendTask task, Button sendEmailsButton, Button cancelButton,
+                              ProgressBar progressBar, Label progressLabel, OutputSink output) {
+        BooleanProperty cancelRequested = new SimpleBooleanProperty();
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressLabel.textProperty().bind(task.messageProperty());
+        // Задача выполняется, пока не получены результаты писем, уже переданных на отправку,
+        // в том числе после отмены, поэтому новую рассылку можно запустить только после этого.
+        sendEmailsButton.disableProperty().bind(task.runningProperty());
+        cancelButton.disableProperty().bind(task.runningProperty().not().or(cancelRequested));
+        cancelButton.setOnAction(e -> {
+            cancelRequested.set(true);
+            task.cancel();
+            output.appendText("\nОтмена рассылки: ожидаются результаты писем, уже переданных на отправку.\n");
+        });
+    }
+    /**
+     * Отображает информацию о письмах в окне с таблицей получателей.
+     *
+     * @param owner Окно приложения.
+     * @param output Приемник, в который выводится число корректных адресов.
+     */
+    private void displayEmailInfo(Window owner, OutputSink output) {
+        try {
+            new RecipientBrowser(InputSources.toFile("emails.txt"), output).show(owner);
+            logger.info("Opened the recipient browser.");
+        } catch (IOException e) {
+            output.appendText("Ошибка чтения файла:" + " " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Предлагает выбрать файлы, вкладываемые в каждое письмо рассылки.
+     *
+     * @param owner Окно приложения.
+     * @param attachmentPaths Список путей к вложениям, заменяемый выбранными файлами.
+     * @param attachmentsLabel Метка с числом выбранных вложений.
+     */
+    private void chooseAttachments(Window owner, List<String> attachmentPaths, Label attachmentsLabel) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Выберите вложения");
+        List<File> files = fileChooser.showOpenMultipleDialog(owner);
+        if (files == null) {
+            return;
+        }
+        attachmentPaths.clear();
+        for (File file : files) {
+            attachmentPaths.add(file.getPath());
+        }
+        attachmentsLabel.setText("Вложений:" + " " + attachmentPaths.size());
+        logger.info("Selected {} attachments", attachmentPaths.size());
     }
 
     /**
      * Отображает содержимое письма.
      *
-     * @param outputArea Область вывода, в которую выводится содержимое письма.
+     * @param output Приемник, в который выводится содержимое письма.
      */
-    private void displayLetterInfo(TextArea outputArea) {
+    private void displayLetterInfo(OutputSink output) {
         LetterReader letterReader = new LetterReader();
-        letterReader.printLetterContent("message.txt", outputArea);
+        letterReader.printLetterContent("message.txt", output);
         logger.info("Displayed letter content.");
     }
 
     /**
-     * Отправляет письма на основе пользовательского ввода.
+     * Отправляет письма на основе пользовательского ввода. Рассылка, включая чтение учетных данных,
+     * адресов и шаблона, выполняется в фоновом потоке.
      *
      * @param subject Тема письма.
-     * @param outputArea Область вывода для отображения результатов отправки.
+     * @param resume true, чтобы продолжить прерванную рассылку, пропустив уже получивших письмо.
+     * @param attachmentPaths Пути к файлам, вкладываемым в каждое письмо.
+     * @param output Приемник для отображения результатов отправки.
+     * @return Запущенная задача рассылки.
      */
-    private void sendEmailsWithUserInput(String subject, TextArea outputArea) {
-        outputArea.appendText("Ожидайте, отправка займет некоторое время.\n");
+    private EmailSendTask sendEmailsWithUserInput(String subject, boolean resume, List<String> attachmentPaths,
+                                                  OutputSink output) {
+        output.appendText("Ожидайте, отправка займет некоторое время.\n");
         logger.debug("The beginning of the process of sending emails.");
-        List<String> credentials = CredentialsDecryptor.readEncryptedCredentials("logpass.txt", outputArea);
-        if (credentials == null || credentials.size() != 2) {
-            outputArea.appendText("Не удалось получить учетные данные для отправки сообщений.\n");
-            return;
-        }
-
-        EmailReader emailReader = new EmailReader();
-        List<String[]> emailList = emailReader.readEmails("emails.txt", outputArea);
-        LetterReader letterReader = new LetterReader();
-        String messageTemplate = letterReader.readLetterContent("message.txt", outputArea);
-
-        sendEmails(credentials.get(0), credentials.get(1), emailList, messageTemplate, subject, outputArea, letterReader);
+        EmailSendTask task = new EmailSendTask(subject, output, resume, attachmentPaths);
+        task.setOnSucceeded(e -> printResults(task.getValue(), output));
+        task.setOnFailed(e -> {
+            output.appendText("\nРассылка прервана:" + " " + task.getException().getMessage() + "\n");
+            logger.error("Sending emails failed", task.getException());
+        });
+        Thread thread = new Thread(task, "email-send-task");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
     }
 
     /**
-     * Отправляет письма.
+     * Выводит итоги рассылки одним сообщением: число отправленных писем и описания первых ошибок отправки.
+     * Итоги отмененной рассылки завершаются сообщением об отмене.
      *
-     * @param username имя пользователя для авторизации на почтовом сервере.
-     * @param password Пароль пользователя.
-     * @param emailList Список адресов электронной почты для отправки.
-     * @param messageTemplate Шаблон сообщения.
-     * @param subject Тема письма.
-     * @param outputArea Область вывода для отображения результатов отправки.
-     * @param letterReader Объект для чтения содержимого письма.
+     * @param result Итоги рассылки.
+     * @param output Приемник для отображения результатов отправки.
      */
-    private void sendEmails(String username, String password, List<String[]> emailList, String messageTemplate, String subject, TextArea outputArea, LetterReader letterReader) {
-        EmailSender emailSender = new EmailSender(username, password);
-        logger.info("Beginning to send emails. User: {}", username);
-        for (String[] emailInfo : emailList) {
-            String toEmail = emailInfo[0];
-            String name = emailInfo[1];
-            String personalizedMessage = letterReader.replaceNamePlaceholder(messageTemplate, name, outputArea);
-            emailSender.sendEmail(toEmail, subject, personalizedMessage, outputArea);
-            logger.info("Email sent to: {}", toEmail);
+    private void printResults(CampaignResult result, OutputSink output) {
+        StringBuilder report = new StringBuilder();
+        report.append("Отправлено писем:").append(" ").append(result.getSentCount()).append("\n");
+        if (result.getFailedCount() > 0) {
+            report.append("Не удалось отправить:").append(" ").append(result.getFailedCount()).append("\n");
+        }
+        for (SendResult failure : result.getFailures()) {
+            report.append(EmailSender.describeFailure(failure.getError())).append("\n");
+        }
+        if (result.getOmittedFailureCount() > 0) {
+            report.append("Не показано ошибок отправки:").append(" ").append(result.getOmittedFailureCount()).append("\n");
+        }
+        if (result.getDuplicateCount() > 0) {
+            report.append("Пропущено повторяющихся адресов:").append(" ").append(result.getDuplicateCount()).append("\n");
         }
-        outputArea.appendText("\nПисьма отправлены.\n");
-        logger.info("All emails sent successfully.");
+        report.append(result.isCancelled() ? "\nРассылка отменена.\n" : "\nПисьма отправлены.\n");
+        output.appendText(report.toString());
     }
 
     /**
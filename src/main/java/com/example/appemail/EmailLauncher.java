@@ -7,6 +7,8 @@ package com.example.appemail;
  * Класс EmailLauncher используется только для инициализации и запуска главного приложения
  * и не включает в себя другой функциональности.
  *
+ * Если первым аргументом указан {@code --cli}, рассылка выполняется в режиме командной строки
+ * ({@link CommandLineCampaign}) без загрузки классов JavaFX.
  *
  * Аргументы командной строки могут использоваться для настройки приложения.
  */
@@ -18,6 +20,10 @@ public class EmailLauncher {
      *             Могут включать различные параметры для настройки приложения.
      */
     public static void main(String[] args) {
-        EmailApplication.main(args);
+        if (args.length > 0 && CommandLineCampaign.CLI_OPTION.equals(args[0])) {
+            CommandLineCampaign.main(args);
+        } else {
+            EmailApplication.main(args);
+        }
     }
 }
@@ -1,134 +1,126 @@
 package com.example.appemail;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
-import javafx.scene.control.TextArea;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * Класс EmailReader предназначен для чтения и обработки адресов электронной почты из файла.
  */
 public class EmailReader {
-    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w-_.+]*[\\w-_.]@([\\w]+\\.)+[\\w]+[\\w]$");
+
+    static final long PARALLEL_PARSE_THRESHOLD = 32L * 1024 * 1024;
 
     /**
-     * Читает адреса электронной почты из файла и возвращает список адресов.
+     * Читает адреса электронной почты из файла и возвращает список получателей.
      *
      * @param filePath Путь к файлу с адресами электронной почты.
-     * @param outputArea Область для вывода сообщений об ошибках и информации.
-     * @return Список массивов строк, где каждый массив содержит адрес электронной почты и связанную информацию.
+     * @param output Приемник для вывода сообщений об ошибках и информации.
+     * @return Список получателей с корректными адресами электронной почты.
      */
-    public List<String[]> readEmails(String filePath, TextArea outputArea) {
-        List<String[]> emailList = new ArrayList<>();
-        try (InputStream is = EmailReader.class.getClassLoader().getResourceAsStream(filePath);
-             BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            processFile(br, emailList, outputArea);
-        } catch (IOException e) {
-            outputArea.appendText("Ошибка чтения файла адресов: " + e.getMessage() + "\n");
+    public List<Recipient> readEmails(String filePath, OutputSink output) {
+        List<Recipient> emailList = new ArrayList<>();
+        try (Stream<Recipient> recipients = streamRecipients(filePath, output)) {
+            recipients.forEach(emailList::add);
+        } catch (IOException | UncheckedIOException e) {
+            output.appendText("Ошибка чтения файла адресов: " + e.getMessage() + "\n");
         }
 
         if (emailList.isEmpty()) {
-            outputArea.appendText("Нет корректных адресов электронной почты в файле.\n");
+            output.appendText("Нет корректных адресов электронной почты в файле.\n");
         }
         return emailList;
     }
 
     /**
-     * Обрабатывает каждую строку файла.
+     * Возвращает ленивый поток получателей из файла. Строки читаются, разбираются и проверяются
+     * по мере потребления потока, поэтому весь файл в памяти не хранится.
+     * Если первая строка файла является заголовком вида {@code #email, name, company},
+     * дополнительные столбцы становятся полями получателя с указанными именами.
+     * Файлы размером от {@link #PARALLEL_PARSE_THRESHOLD} байт разбираются параллельно
+     * ({@link ParallelRecipientParser}); в этом случае сообщения о некорректных строках содержат номер строки.
+     * Поток необходимо закрыть после использования; ошибки чтения во время обхода
+     * выбрасываются как UncheckedIOException.
      *
-     * @param reader BufferedReader для чтения файла.
-     * @param emailList Список для сохранения обработанных адресов электронной почты.
-     * @param outputArea Область для вывода информации.
-     * @throws IOException Если происходит ошибка чтения файла.
+     * @param filePath Путь к файлу с адресами электронной почты.
+     * @param output Приемник для вывода сообщений о некорректных строках.
+     * @return Поток получателей с корректными адресами электронной почты.
+     * @throws IOException Если файл не удалось открыть.
      */
-    private void processFile(BufferedReader reader, List<String[]> emailList, TextArea outputArea) throws IOException {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            processLine(line, emailList, outputArea);
+    public Stream<Recipient> streamRecipients(String filePath, OutputSink output) throws IOException {
+        Path path = Paths.get(filePath);
+        if (Files.isRegularFile(path) && Files.size(path) >= PARALLEL_PARSE_THRESHOLD) {
+            return new ParallelRecipientParser().stream(path, output);
         }
-    }
-
-    /**
-     * Обрабатывает отдельную строку из файла.
-     *
-     * @param line Строка для обработки.
-     * @param emailList Список для добавления обработанной информации.
-     * @param outputArea Область для вывода информации об ошибках.
-     */
-    private void processLine(String line, List<String[]> emailList, TextArea outputArea) {
-        String[] parts = line.split(",", 2);
-        if (isValidLine(parts)) {
-            if (!isValidEmailAddress(parts[0].trim())) {
-                outputArea.appendText("Неверный формат адреса электронной почты:" + " " + parts[0] + "\n");
-                return;
-            }
-            emailList.add(new String[]{parts[0].trim(), parts[1].trim()});
-        } else {
-            outputArea.appendText("Неверный формат строки:" + " " + line + "\n");
+        BufferedReader reader = openReader(filePath);
+        String firstLine;
+        try {
+            firstLine = reader.readLine();
+        } catch (IOException e) {
+            reader.close();
+            throw e;
         }
-    }
-
-    /**
-     * Проверяет, является ли строка валидной для обработки.
-     *
-     * @param parts Массив строк, полученный из разделенной строки.
-     * @return true, если строка валидна, иначе false.
-     */
-    private boolean isValidLine(String[] parts) {
-        return parts.length == 2 && !parts[0].trim().isEmpty() && !parts[1].trim().isEmpty();
+        if (firstLine == null) {
+            reader.close();
+            return Stream.empty();
+        }
+        String[] header = RecipientLineTokenizer.parseHeader(firstLine);
+        String[] columns = header != null ? header : Recipient.DEFAULT_COLUMNS;
+        Stream<String> lines = header != null ? reader.lines() : Stream.concat(Stream.of(firstLine), reader.lines());
+        return lines
+                .map(line -> RecipientLineTokenizer.parse(line, 0, line.length(), columns, output))
+                .filter(Objects::nonNull)
+                .onClose(() -> closeQuietly(reader));
     }
 
     /**
      * Подсчитывает количество валидных адресов электронной почты в файле.
      *
      * @param filePath Путь к файлу с адресами электронной почты.
-     * @param outputArea Область для вывода информации.
+     * @param output Приемник для вывода информации.
      * @return Количество валидных адресов электронной почты.
      */
-    public int countValidEmails(String filePath, TextArea outputArea) {
+    public int countValidEmails(String filePath, OutputSink output) {
         int validEmailCount = 0;
-        try (InputStream is = EmailReader.class.getClassLoader().getResourceAsStream(filePath);
-             BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+        try (BufferedReader br = openReader(filePath)) {
             String line;
             while ((line = br.readLine()) != null) {
-                if (isValidEmailAddress(line.split(",", 2)[0].trim())) {
+                if (RecipientLineTokenizer.hasValidAddress(line, 0, line.length())) {
                     validEmailCount++;
                 }
             }
         } catch (IOException e) {
-            outputArea.appendText("Ошибка чтения файла адресов:" + " " + e.getMessage() + "\n");
+            output.appendText("Ошибка чтения файла адресов:" + " " + e.getMessage() + "\n");
         }
         return validEmailCount;
     }
 
     /**
-     * Проверяет, соответствует ли адрес электронной почты заданному шаблону.
+     * Открывает файл из файловой системы или из ресурсов приложения для чтения в кодировке UTF-8.
      *
-     * @param email Адрес электронной почты для проверки.
-     * @return true, если адрес соответствует шаблону, иначе false.
+     * @param filePath Путь к файлу.
+     * @return BufferedReader для чтения файла.
+     * @throws IOException Если файл не найден или не может быть открыт.
      */
-    private boolean isValidEmailAddress(String email) {
-        return EMAIL_PATTERN.matcher(email).matches();
+    private BufferedReader openReader(String filePath) throws IOException {
+        return InputSources.openReader(filePath);
     }
 
     /**
-     * Выводит содержимое файла в TextArea.
+     * Закрывает BufferedReader, преобразуя ошибку закрытия в UncheckedIOException.
      *
-     * @param filePath Путь к файлу для чтения.
-     * @param outputArea Область для вывода содержимого файла.
+     * @param reader BufferedReader для закрытия.
      */
-    public void printFileContent(String filePath, TextArea outputArea) {
-        try (InputStream is = EmailReader.class.getClassLoader().getResourceAsStream(filePath);
-             BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            String line;
-            outputArea.appendText("Содержимое файла" + " " + filePath + ":\n");
-            while ((line = br.readLine()) != null) {
-                outputArea.appendText(line + "\n");
-            }
+    private static void closeQuietly(BufferedReader reader) {
+        try {
+            reader.close();
         } catch (IOException e) {
-            outputArea.appendText("Ошибка чтения файла:" + " " + e.getMessage() + "\n");
+            throw new UncheckedIOException(e);
         }
     }
 }
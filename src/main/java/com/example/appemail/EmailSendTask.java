@@ -0,0 +1,64 @@
+package com.example.appemail;
+
+import javafx.concurrent.Task;
+
+import java.util.List;
+
+/**
+ * Класс EmailSendTask выполняет рассылку в фоновом потоке, чтобы не блокировать поток JavaFX.
+ * В фоновом потоке выполняется вся подготовка: расшифровка учетных данных и чтение файлов.
+ * Рассылку выполняет {@link CampaignRunner}, а задача публикует ход рассылки (отправлено, ошибки,
+ * осталось, скорость и оставшееся время) через свойства progress и message.
+ */
+public class EmailSendTask extends Task<CampaignResult> {
+
+    private final CampaignRunner runner;
+
+    /**
+     * Конструктор класса EmailSendTask.
+     *
+     * @param subject Тема письма.
+     * @param output Приемник для вывода сообщений об ошибках чтения файлов и отправки.
+     * @param resume true, чтобы пропустить получателей, которым письмо этой рассылки уже было отправлено.
+     * @param attachmentPaths Пути к файлам, вкладываемым в каждое письмо.
+     */
+    public EmailSendTask(String subject, OutputSink output, boolean resume, List<String> attachmentPaths) {
+        this.runner = new CampaignRunner(subject, "emails.txt", "message.txt", "logpass.txt", resume, output);
+        this.runner.setAttachments(attachmentPaths);
+        this.runner.setProgressListener(progress -> {
+            updateProgress(progress.getDone(), progress.getTotal());
+            updateMessage(progress.describe());
+        });
+    }
+
+    /**
+     * Читает учетные данные, адреса и шаблон письма, отправляет письма всем получателям
+     * и возвращает итоги рассылки.
+     *
+     * @return Итоги рассылки.
+     * @throws Exception Если рассылку не удалось подготовить или она была прервана.
+     */
+    @Override
+    protected CampaignResult call() throws Exception {
+        return runner.run();
+    }
+
+    /**
+     * Отменяет рассылку: новые письма больше не передаются на отправку, а письма, уже переданные
+     * на отправку, дожидаются результата. Задача остается выполняющейся, пока рассылка не завершится,
+     * и завершается итогами с признаком отмены ({@link CampaignResult#isCancelled()}), поэтому новую
+     * рассылку нельзя запустить, пока не завершена текущая. Поток рассылки не прерывается независимо
+     * от параметра, иначе результаты отправок, завершившихся после прерывания, не попали бы в журнал отправки.
+     *
+     * @param mayInterruptIfRunning Не используется.
+     * @return true, если отмена запрошена до завершения задачи.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (isDone()) {
+            return false;
+        }
+        runner.cancel();
+        return true;
+    }
+}
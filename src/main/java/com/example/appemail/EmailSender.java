@@ -3,15 +3,28 @@ package com.example.appemail;
 import javax.mail.*;
 import javax.mail.internet.*;
 import java.util.Properties;
-import javafx.scene.control.TextArea;
 
 /**
  * Класс EmailSender используется для отправки электронных писем через SMTP.
+ * Сессия создается один раз, а письма отправляются через пул переиспользуемых соединений.
+ * Соединения по умолчанию открываются через javax.mail; системное свойство
+ * {@code appemail.transport=pipelining} включает собственный клиент с конвейерной передачей команд
+ * ({@link PipeliningSmtpConnection}).
  */
-public class EmailSender {
+public class EmailSender implements AutoCloseable {
 
-    private String username;
-    private String password;
+    static final String DEFAULT_HOST = "smtp.gmail.com";
+    static final int DEFAULT_PORT = 587;
+    static final int DEFAULT_MAX_CONNECTIONS = 4;
+    static final int DEFAULT_MAX_MESSAGES_PER_CONNECTION = 100;
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+    static final String TRANSPORT_PROPERTY = "appemail.transport";
+    static final String PIPELINING_TRANSPORT = "pipelining";
+
+    private final String username;
+    private final InternetAddress fromAddress;
+    private final Session session;
+    private final SmtpConnectionPool connectionPool;
 
     /**
      * Конструктор класса EmailSender.
@@ -21,8 +34,47 @@ public class EmailSender {
      */
 
     public EmailSender(String username, String password) {
+        this(username, password, DEFAULT_HOST, DEFAULT_PORT, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Конструктор класса EmailSender с явным указанием SMTP сервера и размера пула соединений.
+     *
+     * @param username Имя пользователя для SMTP сервера.
+     * @param password Пароль для SMTP сервера.
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param maxConnections Максимальное число одновременно открытых соединений.
+     * @throws IllegalArgumentException Если имя пользователя не является адресом электронной почты.
+     */
+    public EmailSender(String username, String password, String host, int port, int maxConnections) {
+        this(username, password::toCharArray, host, port, maxConnections);
+    }
+
+    /**
+     * Конструктор класса EmailSender, получающий пароль из источника паролей. Пароль запрашивается
+     * при открытии каждого соединения и не хранится отправителем в открытом виде.
+     *
+     * @param username Имя пользователя для SMTP сервера.
+     * @param passwordSource Источник пароля для SMTP сервера.
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param maxConnections Максимальное число одновременно открытых соединений.
+     * @throws IllegalArgumentException Если имя пользователя не является адресом электронной почты.
+     */
+    public EmailSender(String username, PasswordSource passwordSource, String host, int port, int maxConnections) {
         this.username = username;
-        this.password = password;
+        try {
+            this.fromAddress = new InternetAddress(username);
+        } catch (AddressException e) {
+            throw new IllegalArgumentException("Неверный адрес отправителя:" + " " + username, e);
+        }
+        this.session = Session.getInstance(setupMailProperties(host, port));
+        SmtpConnectionFactory connectionFactory = PIPELINING_TRANSPORT.equals(System.getProperty(TRANSPORT_PROPERTY))
+                ? PipeliningSmtpConnection.factory(host, port, username, passwordSource)
+                : JavaMailSmtpConnection.factory(session, host, port, username, passwordSource);
+        this.connectionPool = new SmtpConnectionPool(host, port, connectionFactory,
+                maxConnections, DEFAULT_MAX_MESSAGES_PER_CONNECTION, DEFAULT_IDLE_TIMEOUT_MILLIS);
     }
 
     /**
@@ -31,62 +83,128 @@ public class EmailSender {
      * @param toEmail Адрес электронной почты получателя.
      * @param subject Тема письма.
      * @param body Текст письма.
-     * @param outputArea TextArea для вывода информации об отправке.
+     * @param output Приемник для вывода информации об отправке.
      */
-    public void sendEmail(String toEmail, String subject, String body, TextArea outputArea) {
-        Properties properties = setupMailProperties();
-        Session session = createSession(properties);
+    public void sendEmail(String toEmail, String subject, String body, OutputSink output) {
         try {
-            Message message = createEmailMessage(session, toEmail, subject, body);
-            Transport.send(message);
-            outputArea.appendText("Письмо успешно отправлено на почту:" + " " + toEmail + "\n" );
+            send(toEmail, subject, body);
+            output.appendText("Письмо успешно отправлено на почту:" + " " + toEmail + "\n" );
         } catch (MessagingException e) {
-            handleMessagingException(e, outputArea);
+            handleMessagingException(e, output);
         }
     }
 
     /**
-     * Обрабатывает исключения, связанные с отправкой сообщений.
+     * Отправляет электронное письмо, не выводя информацию в интерфейс.
+     * Метод безопасно вызывать одновременно из нескольких потоков.
+     *
+     * @param toEmail Адрес электронной почты получателя.
+     * @param subject Тема письма.
+     * @param body Текст письма.
+     * @throws MessagingException Если письмо не удалось отправить.
+     */
+    public void send(String toEmail, String subject, String body) throws MessagingException {
+        Message message = createEmailMessage(session, toEmail, subject, body);
+        connectionPool.send(message, message.getAllRecipients());
+    }
+
+    /**
+     * Отправляет письмо, созданное {@link MimeMessageFactory}, от имени учетной записи отправителя.
+     * Метод безопасно вызывать одновременно из нескольких потоков для разных писем.
+     *
+     * @param message Письмо для отправки.
+     * @throws MessagingException Если письмо не удалось отправить.
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        message.setFrom(fromAddress);
+        connectionPool.send(message, message.getAllRecipients());
+    }
+
+    /**
+     * Отправляет письмо, созданное {@link MimeMessageFactory}, на указанные адреса конверта,
+     * не зависящие от заголовков письма. Так одно письмо доставляется нескольким получателям
+     * за одну SMTP транзакцию.
+     *
+     * @param message Письмо для отправки.
+     * @param recipients Адреса получателей конверта.
+     * @throws MessagingException Если письмо не удалось отправить. При частичной отправке
+     *                            выбрасывается SendFailedException со списками отправленных и неотправленных адресов.
+     */
+    public void send(MimeMessage message, Address[] recipients) throws MessagingException {
+        message.setFrom(fromAddress);
+        connectionPool.send(message, recipients);
+    }
+
+    /**
+     * @return Имя пользователя учетной записи отправителя.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Возвращает адрес SMTP сервера, через который отправляются письма.
+     *
+     * @return Адрес SMTP сервера.
+     */
+    public String getHost() {
+        return connectionPool.getHost();
+    }
+
+    /**
+     * Формирует понятное пользователю описание ошибки отправки.
      *
      * @param e Исключение MessagingException.
-     * @param outputArea TextArea для вывода сообщения об ошибке.
+     * @return Текст сообщения об ошибке.
      */
-    private void handleMessagingException(MessagingException e, TextArea outputArea) {
-        if (e.getMessage().contains("535-5.7.8")) {
-            outputArea.appendText("Ошибка аутентификации:Проверьте логин и пароль для SMTP-сервера.");
-        } else {
-            outputArea.appendText("Ошибка отправки сообщения:" + " " + e.getMessage());
+    static String describeFailure(MessagingException e) {
+        if (e.getMessage() != null && e.getMessage().contains("535-5.7.8")) {
+            return "Ошибка аутентификации:Проверьте логин и пароль для SMTP-сервера.";
+        }
+        if (SmtpErrorClassifier.classify(e).isRetryable()) {
+            return "Временная ошибка отправки сообщения:" + " " + e.getMessage();
         }
+        return "Ошибка отправки сообщения:" + " " + e.getMessage();
+    }
+
+    /**
+     * Обрабатывает исключения, связанные с отправкой сообщений.
+     *
+     * @param e Исключение MessagingException.
+     * @param output Приемник для вывода сообщения об ошибке.
+     */
+    private void handleMessagingException(MessagingException e, OutputSink output) {
+        output.appendText(describeFailure(e));
+    }
+
+    /**
+     * Закрывает все открытые соединения с SMTP сервером.
+     */
+    @Override
+    public void close() {
+        connectionPool.close();
     }
 
     /**
      * Настраивает свойства для подключения к SMTP серверу.
      *
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
      * @return Объект Properties с настройками.
      */
-    private Properties setupMailProperties() {
+    private Properties setupMailProperties(String host, int port) {
         Properties properties = new Properties();
         properties.put("mail.smtp.auth", "true");
         properties.put("mail.smtp.starttls.enable", "true");
-        properties.put("mail.smtp.host", "smtp.gmail.com");
-        properties.put("mail.smtp.port", "587");
+        properties.put("mail.smtp.host", host);
+        properties.put("mail.smtp.port", String.valueOf(port));
+        properties.put("mail.smtp.connectiontimeout", "10000");
+        properties.put("mail.smtp.timeout", "30000");
+        properties.put("mail.smtp.sendpartial", "true");
+        properties.put("mail.smtp.allow8bitmime", "true");
         return properties;
     }
 
-    /**
-     * Создает сессию для отправки электронных писем.
-     *
-     * @param properties Настройки для создания сессии.
-     * @return Сессия для отправки электронных писем.
-     */
-    private Session createSession(Properties properties) {
-        return Session.getInstance(properties, new javax.mail.Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(username, password);
-            }
-        });
-    }
-
     /**
      * Создает объект сообщения электронной почты.
      *
@@ -100,7 +218,7 @@ public class EmailSender {
     private Message createEmailMessage(Session session, String toEmail, String subject, String body)
             throws MessagingException {
         Message message = new MimeMessage(session);
-        message.setFrom(new InternetAddress(username));
+        message.setFrom(fromAddress);
         message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
         message.setSubject(subject);
         message.setText(body);
@@ -0,0 +1,55 @@
+package com.example.appemail;
+
+import java.util.Arrays;
+
+/**
+ * Класс EncryptedSecret хранит зашифрованное XOR значение (например, пароль) и расшифровывает его
+ * по требованию в новый массив символов. Расшифрованное значение не хранится, поэтому пароль
+ * находится в памяти в открытом виде только на время аутентификации.
+ */
+public class EncryptedSecret implements PasswordSource {
+
+    private final byte[] cipher;
+    private final KeySource keySource;
+
+    /**
+     * Конструктор класса EncryptedSecret.
+     *
+     * @param cipher Зашифрованное значение.
+     * @param keySource Источник ключевого потока.
+     */
+    public EncryptedSecret(byte[] cipher, KeySource keySource) {
+        this.cipher = cipher.clone();
+        this.keySource = keySource;
+    }
+
+    /**
+     * Расшифровывает значение в новый массив символов.
+     *
+     * @return Расшифрованное значение. Массив следует затереть после использования.
+     */
+    @Override
+    public char[] getPassword() {
+        byte[] keystream = keySource.keystream(cipher.length);
+        char[] plain = new char[cipher.length];
+        for (int i = 0; i < cipher.length; i++) {
+            plain[i] = (char) ((cipher[i] ^ keystream[i]) & 0xFF);
+        }
+        return plain;
+    }
+
+    /**
+     * Расшифровывает значение в строку. Используется для значений, которые не являются секретом,
+     * например для логина.
+     *
+     * @return Расшифрованное значение.
+     */
+    public String decryptToString() {
+        char[] plain = getPassword();
+        try {
+            return new String(plain);
+        } finally {
+            Arrays.fill(plain, '\0');
+        }
+    }
+}
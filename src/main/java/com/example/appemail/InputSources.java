@@ -0,0 +1,83 @@
+package com.example.appemail;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Класс InputSources открывает входные файлы приложения: адреса, шаблон письма и учетные данные.
+ * Файл ищется сначала в файловой системе по указанному пути, а если его там нет —
+ * среди ресурсов приложения. Так графический интерфейс по-прежнему читает файлы из ресурсов,
+ * а в режиме командной строки можно указать любые файлы.
+ * Большие файлы из файловой системы читаются через отображение в память ({@link MappedTextReader}).
+ */
+public final class InputSources {
+
+    private static final int READER_BUFFER_SIZE = 64 * 1024;
+
+    private InputSources() {
+    }
+
+    /**
+     * Открывает файл для чтения.
+     *
+     * @param filePath Путь к файлу в файловой системе или имя ресурса приложения.
+     * @return InputStream для чтения файла.
+     * @throws IOException Если файл не найден или не может быть открыт.
+     */
+    public static InputStream open(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        InputStream is = InputSources.class.getClassLoader().getResourceAsStream(filePath);
+        if (is == null) {
+            throw new FileNotFoundException("Файл не найден: " + filePath);
+        }
+        return is;
+    }
+
+    /**
+     * Открывает текстовый файл в кодировке UTF-8 для построчного чтения. Файл из файловой системы
+     * отображается в память, а ресурс приложения читается обычным потоком.
+     *
+     * @param filePath Путь к файлу в файловой системе или имя ресурса приложения.
+     * @return BufferedReader для чтения файла.
+     * @throws IOException Если файл не найден или не может быть открыт.
+     */
+    public static BufferedReader openReader(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (Files.isRegularFile(path)) {
+            return new BufferedReader(new MappedTextReader(path), READER_BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(open(filePath), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Возвращает путь к файлу в файловой системе. Ресурс приложения, который нельзя читать
+     * с произвольного места, копируется во временный файл, удаляемый при завершении приложения.
+     *
+     * @param filePath Путь к файлу в файловой системе или имя ресурса приложения.
+     * @return Путь к файлу в файловой системе.
+     * @throws IOException Если файл не найден или его не удалось скопировать.
+     */
+    public static Path toFile(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        try (InputStream is = open(filePath)) {
+            Path copy = Files.createTempFile("appemail-", "-" + path.getFileName());
+            copy.toFile().deleteOnExit();
+            Files.copy(is, copy, StandardCopyOption.REPLACE_EXISTING);
+            return copy;
+        }
+    }
+}
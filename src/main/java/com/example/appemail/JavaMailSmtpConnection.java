@@ -0,0 +1,75 @@
+package com.example.appemail;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import com.sun.mail.smtp.SMTPTransport;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс JavaMailSmtpConnection — соединение с SMTP сервером через {@link Transport} из javax.mail.
+ * Каждая команда отправляется после получения ответа на предыдущую.
+ */
+public class JavaMailSmtpConnection implements SmtpConnection {
+
+    private static final Logger logger = LogManager.getLogger(JavaMailSmtpConnection.class);
+
+    private final Transport transport;
+
+    private JavaMailSmtpConnection(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Создает фабрику соединений javax.mail.
+     *
+     * @param session Сессия, из которой создаются соединения.
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param username Имя пользователя для SMTP сервера.
+     * @param passwordSource Источник пароля для SMTP сервера.
+     * @return Фабрика соединений.
+     */
+    public static SmtpConnectionFactory factory(Session session, String host, int port, String username, PasswordSource passwordSource) {
+        return () -> {
+            Transport transport = session.getTransport("smtp");
+            char[] password = passwordSource.getPassword();
+            try {
+                // javax.mail принимает пароль только строкой, поэтому затирается хотя бы исходный массив.
+                transport.connect(host, port, username, new String(password));
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+            return new JavaMailSmtpConnection(transport);
+        };
+    }
+
+    @Override
+    public void send(Message message, Address[] recipients) throws MessagingException {
+        // javax.mail передает текст в кодировке 8bit как есть, даже если сервер не объявил 8BITMIME.
+        if (message instanceof MimeMessage && !((SMTPTransport) transport).supportsExtension("8BITMIME")) {
+            MimeMessageFactory.convertTo7Bit((MimeMessage) message);
+        }
+        transport.sendMessage(message, recipients);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return transport.isConnected();
+    }
+
+    @Override
+    public void close() {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP connection cleanly: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.appemail;
+
+/**
+ * Интерфейс KeySource предоставляет ключевой поток для расшифровки учетных данных.
+ * Позволяет заменить встроенный ключ, например ключом из переменной окружения или хранилища.
+ */
+@FunctionalInterface
+public interface KeySource {
+
+    /**
+     * Возвращает ключевой поток длиной не меньше заданной. Возвращенный массив может
+     * использоваться повторно и не должен изменяться вызывающим кодом.
+     *
+     * @param minLength Минимальная длина ключевого потока в байтах.
+     * @return Ключевой поток.
+     */
+    byte[] keystream(int minLength);
+}
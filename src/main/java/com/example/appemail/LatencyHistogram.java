@@ -0,0 +1,132 @@
+package com.example.appemail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс LatencyHistogram — потокобезопасная гистограмма задержек с лог-линейными интервалами,
+ * как в HdrHistogram. Каждый интервал [2^k, 2^(k+1)) микросекунд делится на {@link #SUB_BUCKETS}
+ * равных частей, поэтому относительная погрешность процентилей не превышает 1/{@link #SUB_BUCKETS}
+ * при фиксированном объеме памяти. Запись значения — одно атомарное увеличение счетчика без блокировок.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Записывает задержку.
+     *
+     * @param nanos Задержка в наносекундах.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(bucketIndex(micros));
+        totalCount.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * @return Число записанных значений.
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * @return Средняя задержка в микросекундах или 0, если значений нет.
+     */
+    public long getMeanMicros() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : totalMicros.sum() / count;
+    }
+
+    /**
+     * @return Максимальная задержка в микросекундах.
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Возвращает задержку, не превышаемую заданной долей значений.
+     *
+     * @param percentile Процентиль от 0 до 100.
+     * @return Верхняя граница интервала, содержащего процентиль, в микросекундах, или 0, если значений нет.
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * Сбрасывает гистограмму. Значения, записанные одновременно со сбросом, могут быть потеряны.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalMicros.reset();
+        maxMicros.reset();
+    }
+
+    /**
+     * Вычисляет номер интервала для значения.
+     *
+     * @param value Значение в микросекундах.
+     * @return Номер интервала.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Вычисляет наибольшее значение, попадающее в интервал.
+     *
+     * @param index Номер интервала.
+     * @return Верхняя граница интервала в микросекундах.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -3,7 +3,6 @@ package com.example.appemail;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 
-import javafx.scene.control.TextArea;
 
 /**
  * Класс LetterReader используется для чтения и обработки содержимого письма из файла.
@@ -14,13 +13,13 @@ public class LetterReader {
      * Читает содержимое письма из файла и проверяет его на валидность.
      *
      * @param filePath Путь к файлу с содержимым письма.
-     * @param outputArea Область для вывода информации и ошибок.
+     * @param output Приемник для вывода информации и ошибок.
      * @return Строка, содержащая содержимое письма.
      */
-    public String readLetterContent(String filePath, TextArea outputArea) {
-        String letterContent = readFile(filePath, outputArea);
+    public String readLetterContent(String filePath, OutputSink output) {
+        String letterContent = readFile(filePath, output);
         if (!letterContent.isEmpty()) {
-            validateLetterContent(letterContent, filePath, outputArea);
+            validateLetterContent(letterContent, filePath, output);
         }
         return letterContent;
     }
@@ -29,19 +28,19 @@ public class LetterReader {
      * Читает содержимое файла и возвращает его в виде строки.
      *
      * @param filePath Путь к файлу для чтения.
-     * @param outputArea Область для вывода информации об ошибках.
+     * @param output Приемник для вывода информации об ошибках.
      * @return Строка, содержащая прочитанное содержимое файла.
      */
-    private String readFile(String filePath, TextArea outputArea) {
+    private String readFile(String filePath, OutputSink output) {
         StringBuilder contentBuilder = new StringBuilder();
-        try (InputStream is = LetterReader.class.getClassLoader().getResourceAsStream(filePath);
+        try (InputStream is = InputSources.open(filePath);
              BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
             String line;
             while ((line = br.readLine()) != null) {
                 contentBuilder.append(line).append(System.lineSeparator());
             }
         } catch (IOException e) {
-            outputArea.appendText("Ошибка чтения файла: " + e.getMessage() + "\n");
+            output.appendText("Ошибка чтения файла: " + e.getMessage() + "\n");
             return "";
         }
         return contentBuilder.toString();
@@ -52,15 +51,15 @@ public class LetterReader {
      *
      * @param content Содержимое письма для проверки.
      * @param filePath Путь к файлу, из которого было прочитано содержимое.
-     * @param outputArea Область для вывода предупреждений или замечаний.
+     * @param output Приемник для вывода предупреждений или замечаний.
      */
-    private void validateLetterContent(String content, String filePath, TextArea outputArea) {
+    private void validateLetterContent(String content, String filePath, OutputSink output) {
         if (content.isEmpty()) {
-            outputArea.appendText("Файл" + filePath + " пуст.\n");
+            output.appendText("Файл" + filePath + " пуст.\n");
         } else if (content.trim().equals("{name}")) {
-            outputArea.appendText("Примечание: письмо содержит только плейсхолдер.\n");
+            output.appendText("Примечание: письмо содержит только плейсхолдер.\n");
         } else if (content.trim().equals("Добрый день, {name}!")) {
-            outputArea.appendText("Примечание: письмосодержит только приветствие, дополнительный текст отсутствует.\n");
+            output.appendText("Примечание: письмосодержит только приветствие, дополнительный текст отсутствует.\n");
         }
     }
 
@@ -69,27 +68,38 @@ public class LetterReader {
      *
      * @param letterContent Содержимое письма, в котором нужно выполнить замену.
      * @param name мя, на которое нужно заменить плейсхолдер.
-     * @param outputArea Область для вывода информации.
+     * @param output Приемник для вывода информации.
      * @return Содержимое письма с замененным плейсхолдером.
      */
-    public String replaceNamePlaceholder(String letterContent, String name, TextArea outputArea) {
+    public String replaceNamePlaceholder(String letterContent, String name, OutputSink output) {
         if (!letterContent.contains("{name}")) {
-            outputArea.appendText("Плейсхолдер {name} не найден в содержимом письма.\n");
+            output.appendText("Плейсхолдер {name} не найден в содержимом письма.\n");
             return letterContent;
         }
         return letterContent.replace("{name}", name);
     }
 
     /**
-     * Выводит содержимое файла письма в TextArea.
+     * Читает письмо из файла и разбирает его в шаблон с плейсхолдерами {@code {поле}}.
+     *
+     * @param filePath Путь к файлу с содержимым письма.
+     * @param output Приемник для вывода информации и ошибок.
+     * @return Разобранный шаблон письма.
+     */
+    public MessageTemplate readTemplate(String filePath, OutputSink output) {
+        return MessageTemplate.compile(readLetterContent(filePath, output));
+    }
+
+    /**
+     * Выводит содержимое файла письма в приемник вывода.
      *
      * @param filePath Путь к файлу с письмом.
-     * @param outputArea Область для вывода содержимого письма.
+     * @param output Приемник для вывода содержимого письма.
      */
-    public void printLetterContent(String filePath, TextArea outputArea) {
-        String letterContent = readFile(filePath, outputArea);
+    public void printLetterContent(String filePath, OutputSink output) {
+        String letterContent = readFile(filePath, output);
         if (!letterContent.isEmpty()) {
-            outputArea.appendText("Содержимое файла " + filePath + ":\n" + letterContent + "\n");
+            output.appendText("Содержимое файла " + filePath + ":\n" + letterContent + "\n");
         }
     }
 
@@ -0,0 +1,113 @@
+package com.example.appemail;
+
+/**
+ * Класс LongHashSet — множество 64-битных значений с открытой адресацией и линейным пробированием.
+ * Значения хранятся в одном массиве long без упаковки в объекты, что дает около 16 байт
+ * на элемент вместо нескольких десятков у HashSet. Класс не потокобезопасен.
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int size;
+    private boolean containsEmptyValue;
+
+    /**
+     * Создает пустое множество.
+     */
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Создает пустое множество, рассчитанное на заданное число элементов.
+     *
+     * @param expectedSize Ожидаемое число элементов.
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        this.table = new long[capacity];
+    }
+
+    /**
+     * Добавляет значение в множество.
+     *
+     * @param value Значение.
+     * @return true, если значения еще не было в множестве, иначе false.
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !containsEmptyValue;
+            containsEmptyValue = true;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+        int mask = table.length - 1;
+        int index = (int) value & mask;
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        size++;
+        if (size * 2 > table.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет наличие значения в множестве.
+     *
+     * @param value Значение.
+     * @return true, если значение есть в множестве, иначе false.
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmptyValue;
+        }
+        int mask = table.length - 1;
+        int index = (int) value & mask;
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return Число элементов множества.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Увеличивает таблицу вдвое и заново размещает в ней все значения.
+     */
+    private void grow() {
+        long[] oldTable = table;
+        table = new long[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (long value : oldTable) {
+            if (value != EMPTY) {
+                int index = (int) value & mask;
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+}
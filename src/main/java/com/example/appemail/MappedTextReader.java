@@ -0,0 +1,123 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс MappedTextReader читает текстовый файл в кодировке UTF-8, отображая его в память окнами
+ * по {@link #WINDOW_SIZE} байт. Файл любого размера читается без копирования в буфер процесса
+ * и без ограничения в 2 ГБ на одно отображение. Символ, разрезанный границей окна, декодируется
+ * целиком в следующем окне. Некорректные последовательности байтов заменяются символом U+FFFD.
+ */
+public class MappedTextReader extends Reader {
+
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean endOfInput;
+
+    /**
+     * Открывает файл для чтения.
+     *
+     * @param path Путь к файлу.
+     * @throws IOException Если файл не удалось открыть.
+     */
+    public MappedTextReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.chars.flip();
+        skipByteOrderMark();
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        int count = Math.min(length, chars.remaining());
+        chars.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Декодирует очередную порцию символов, при необходимости отображая следующее окно файла.
+     *
+     * @return true, если символы получены, и false в конце файла.
+     * @throws IOException Если файл не удалось прочитать.
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        try {
+            while (chars.position() == 0) {
+                if (window == null || !window.hasRemaining()) {
+                    if (endOfInput) {
+                        decoder.flush(chars);
+                        break;
+                    }
+                    mapNextWindow();
+                }
+                boolean lastWindow = windowStart + window.capacity() >= size;
+                CoderResult result = decoder.decode(window, chars, lastWindow);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (result.isUnderflow() && window.hasRemaining()) {
+                    // Неполный символ в конце окна: следующее окно начинается с его первого байта.
+                    windowStart += window.position();
+                    window = null;
+                } else if (result.isUnderflow() && lastWindow) {
+                    endOfInput = true;
+                }
+            }
+        } finally {
+            chars.flip();
+        }
+        return chars.hasRemaining();
+    }
+
+    private void mapNextWindow() throws IOException {
+        if (window != null) {
+            windowStart += window.capacity();
+        }
+        long length = Math.min(WINDOW_SIZE, size - windowStart);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+        if (length == 0) {
+            endOfInput = true;
+        }
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        if (size >= 3) {
+            mapNextWindow();
+            if ((window.get(0) & 0xFF) == 0xEF && (window.get(1) & 0xFF) == 0xBB && (window.get(2) & 0xFF) == 0xBF) {
+                window.position(3);
+            }
+        }
+    }
+}
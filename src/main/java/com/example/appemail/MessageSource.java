@@ -0,0 +1,38 @@
+package com.example.appemail;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Интерфейс MessageSource предоставляет {@link BulkEmailDispatcher} письма для получателей.
+ * Письма могут создаваться по шаблону непосредственно перед отправкой ({@link MimeMessageFactory})
+ * или читаться готовыми из исходящей очереди на диске ({@link Outbox}).
+ */
+public interface MessageSource {
+
+    /**
+     * Возвращает письмо для получателя.
+     *
+     * @param recipient Получатель письма.
+     * @return Письмо, готовое к отправке после установки адреса отправителя.
+     * @throws MessagingException Если письмо не удалось получить.
+     */
+    MimeMessage create(Recipient recipient) throws MessagingException;
+
+    /**
+     * Возвращает одно письмо для нескольких получателей с одинаковым ключом текста письма.
+     *
+     * @param recipient Любой из получателей.
+     * @return Письмо, готовое к отправке после установки адреса отправителя.
+     * @throws MessagingException Если письмо не удалось получить.
+     */
+    MimeMessage createShared(Recipient recipient) throws MessagingException;
+
+    /**
+     * Возвращает ключ текста письма: получатели с одинаковым ключом могут получить одно общее письмо.
+     *
+     * @param recipient Получатель.
+     * @return Ключ текста письма.
+     */
+    String renderKey(Recipient recipient);
+}
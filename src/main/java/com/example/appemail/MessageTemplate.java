@@ -0,0 +1,179 @@
+package com.example.appemail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Класс MessageTemplate представляет шаблон письма, разобранный один раз на последовательность
+ * текстовых фрагментов и плейсхолдеров вида {@code {поле}}. Значения плейсхолдеров берутся из
+ * одноименных столбцов файла адресов. При подстановке шаблон повторно не сканируется:
+ * фрагменты копируются в буфер заранее рассчитанного размера.
+ */
+public class MessageTemplate {
+
+    private static final int ESTIMATED_FIELD_LENGTH = 16;
+
+    private final String[] literals;
+    private final String[] fields;
+    private final int estimatedLength;
+    private final byte[][] encodedLiterals;
+    private final int encodedLiteralLength;
+
+    private MessageTemplate(String[] literals, String[] fields) {
+        this.literals = literals;
+        this.fields = fields;
+        int literalLength = 0;
+        for (String literal : literals) {
+            literalLength += literal.length();
+        }
+        this.estimatedLength = literalLength + fields.length * ESTIMATED_FIELD_LENGTH;
+        this.encodedLiterals = new byte[literals.length][];
+        int encodedLength = 0;
+        for (int i = 0; i < literals.length; i++) {
+            encodedLiterals[i] = toCrlf(literals[i]).getBytes(StandardCharsets.UTF_8);
+            encodedLength += encodedLiterals[i].length;
+        }
+        this.encodedLiteralLength = encodedLength;
+    }
+
+    /**
+     * Разбирает текст шаблона. Плейсхолдером считается имя из латинских букв, цифр и символа
+     * подчеркивания в фигурных скобках; остальные фигурные скобки остаются обычным текстом.
+     *
+     * @param text Текст шаблона.
+     * @return Разобранный шаблон.
+     */
+    public static MessageTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int nameEnd = text.charAt(i) == '{' ? placeholderEnd(text, i + 1) : -1;
+            if (nameEnd < 0) {
+                i++;
+                continue;
+            }
+            literals.add(text.substring(literalStart, i));
+            fields.add(text.substring(i + 1, nameEnd));
+            i = nameEnd + 1;
+            literalStart = i;
+        }
+        literals.add(text.substring(literalStart));
+        return new MessageTemplate(literals.toArray(new String[0]), fields.toArray(new String[0]));
+    }
+
+    /**
+     * Подставляет в шаблон значения полей получателя. Если у получателя нет поля,
+     * плейсхолдер остается в тексте без изменений.
+     *
+     * @param recipient Получатель, значения полей которого подставляются в шаблон.
+     * @return Текст письма для получателя.
+     */
+    public String render(Recipient recipient) {
+        StringBuilder builder = new StringBuilder(estimatedLength);
+        builder.append(literals[0]);
+        for (int i = 0; i < fields.length; i++) {
+            String value = recipient.getField(fields[i]);
+            if (value != null) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(fields[i]).append('}');
+            }
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Подставляет в шаблон значения полей получателя и возвращает текст письма в кодировке UTF-8
+     * с окончаниями строк CRLF. Текстовые фрагменты шаблона закодированы заранее, поэтому
+     * для каждого получателя кодируются только значения полей, а результат копируется в массив
+     * точно рассчитанного размера.
+     *
+     * @param recipient Получатель, значения полей которого подставляются в шаблон.
+     * @return Текст письма для получателя в кодировке UTF-8.
+     */
+    public byte[] renderUtf8(Recipient recipient) {
+        byte[][] values = new byte[fields.length][];
+        int length = encodedLiteralLength;
+        for (int i = 0; i < fields.length; i++) {
+            String value = recipient.getField(fields[i]);
+            values[i] = (value != null ? value : "{" + fields[i] + "}").getBytes(StandardCharsets.UTF_8);
+            length += values[i].length;
+        }
+        byte[] result = new byte[length];
+        int position = copy(encodedLiterals[0], result, 0);
+        for (int i = 0; i < fields.length; i++) {
+            position = copy(values[i], result, position);
+            position = copy(encodedLiterals[i + 1], result, position);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает ключ, одинаковый для получателей, которым шаблон дает одинаковый текст письма:
+     * значения используемых в шаблоне полей, разделенные нулевым символом.
+     * Для шаблона без плейсхолдеров ключ у всех получателей пустой.
+     *
+     * @param recipient Получатель.
+     * @return Ключ текста письма для получателя.
+     */
+    public String renderKey(Recipient recipient) {
+        if (fields.length == 0) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                key.append('\0');
+            }
+            String value = recipient.getField(fields[i]);
+            key.append(value != null ? value : "\1");
+        }
+        return key.toString();
+    }
+
+    /**
+     * Возвращает имена полей, используемых в шаблоне, в порядке первого появления.
+     *
+     * @return Множество имен полей.
+     */
+    public Set<String> getPlaceholders() {
+        Set<String> placeholders = new LinkedHashSet<>();
+        Collections.addAll(placeholders, fields);
+        return placeholders;
+    }
+
+    /**
+     * Находит конец имени плейсхолдера.
+     *
+     * @param text Текст шаблона.
+     * @param nameStart Индекс символа, следующего за открывающей скобкой.
+     * @return Индекс закрывающей скобки или -1, если здесь нет плейсхолдера.
+     */
+    private static int placeholderEnd(String text, int nameStart) {
+        int i = nameStart;
+        while (i < text.length() && isNameChar(text.charAt(i))) {
+            i++;
+        }
+        return i > nameStart && i < text.length() && text.charAt(i) == '}' ? i : -1;
+    }
+
+    private static int copy(byte[] source, byte[] target, int position) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    private static String toCrlf(String text) {
+        return text.replace("\r\n", "\n").replace("\n", "\r\n");
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.appemail;
+
+import javax.activation.DataHandler;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.internet.MimePart;
+import javax.mail.internet.MimeUtility;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Класс MimeMessageFactory создает письма рассылки. Общие для всех получателей части письма —
+ * закодированная тема, тип содержимого и закодированные в UTF-8 фрагменты шаблона — готовятся
+ * один раз, а для каждого получателя добавляются только адрес и значения полей шаблона.
+ * Тело письма передается в кодировке 8bit, поэтому javax.mail не сканирует и не перекодирует его
+ * при отправке; если после подстановки полей в тексте есть строка длиннее {@link #MAX_8BIT_LINE_LENGTH}
+ * байт, тело кодируется quoted-printable. Серверу без расширения 8BITMIME соединение передает письмо,
+ * перекодированное в quoted-printable методом {@link #convertTo7Bit(MimeMessage)}. Адрес отправителя устанавливает {@link EmailSender} непосредственно перед отправкой.
+ * Вложения ({@link SharedAttachment}) кодируются один раз и общие для всех писем; письмо с вложениями
+ * состоит из текста и вложений в виде multipart/mixed.
+ */
+public class MimeMessageFactory implements MessageSource {
+
+    static final String CONTENT_TYPE = "text/plain; charset=UTF-8";
+    static final String UNDISCLOSED_RECIPIENTS = "undisclosed-recipients:;";
+    static final int MAX_8BIT_LINE_LENGTH = 900;
+    private static final String EIGHT_BIT = "8bit";
+    private static final String QUOTED_PRINTABLE = "quoted-printable";
+
+    private final Session session = Session.getInstance(new Properties());
+    private final String encodedSubject;
+    private final MessageTemplate template;
+    private final List<SharedAttachment> attachments;
+
+    /**
+     * Конструктор класса MimeMessageFactory для писем без вложений.
+     *
+     * @param subject Тема письма.
+     * @param template Шаблон текста письма.
+     * @throws MessagingException Если тему не удалось закодировать.
+     */
+    public MimeMessageFactory(String subject, MessageTemplate template) throws MessagingException {
+        this(subject, template, Collections.emptyList());
+    }
+
+    /**
+     * Конструктор класса MimeMessageFactory.
+     *
+     * @param subject Тема письма.
+     * @param template Шаблон текста письма.
+     * @param attachments Вложения, добавляемые в каждое письмо.
+     * @throws MessagingException Если тему не удалось закодировать.
+     */
+    public MimeMessageFactory(String subject, MessageTemplate template, List<SharedAttachment> attachments)
+            throws MessagingException {
+        try {
+            this.encodedSubject = MimeUtility.fold(9, MimeUtility.encodeText(subject, "UTF-8", null));
+        } catch (UnsupportedEncodingException e) {
+            throw new MessagingException("Не удалось закодировать тему письма.", e);
+        }
+        this.template = template;
+        this.attachments = List.copyOf(attachments);
+    }
+
+    /**
+     * Создает письмо для получателя.
+     *
+     * @param recipient Получатель письма.
+     * @return Письмо, готовое к отправке после установки адреса отправителя.
+     * @throws MessagingException Если письмо не удалось создать.
+     */
+    @Override
+    public MimeMessage create(Recipient recipient) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient.getEmail()));
+        setContent(message, recipient);
+        return message;
+    }
+
+    /**
+     * Создает одно письмо для нескольких получателей с одинаковым текстом письма.
+     * Адреса получателей в заголовки не попадают и передаются только в конверте при отправке,
+     * как при отправке в скрытой копии.
+     *
+     * @param recipient Любой из получателей, текст письма которого совпадает с остальными.
+     * @return Письмо, готовое к отправке после установки адреса отправителя.
+     * @throws MessagingException Если письмо не удалось создать.
+     */
+    @Override
+    public MimeMessage createShared(Recipient recipient) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setHeader("To", UNDISCLOSED_RECIPIENTS);
+        setContent(message, recipient);
+        return message;
+    }
+
+    /**
+     * Возвращает ключ текста письма для получателя: у получателей с одинаковым ключом текст письма совпадает.
+     *
+     * @param recipient Получатель.
+     * @return Ключ текста письма.
+     */
+    @Override
+    public String renderKey(Recipient recipient) {
+        return template.renderKey(recipient);
+    }
+
+    /**
+     * Перекодирует текстовые части письма из 8bit в quoted-printable для сервера, который не поддерживает
+     * расширение 8BITMIME. Обрабатывает как письма, созданные фабрикой, так и письма, прочитанные
+     * из исходящей очереди. Вызывается соединением перед отправкой.
+     *
+     * @param message Письмо.
+     * @return true, если письмо было изменено.
+     * @throws MessagingException Если письмо не удалось перекодировать.
+     */
+    static boolean convertTo7Bit(MimeMessage message) throws MessagingException {
+        boolean changed;
+        try {
+            changed = convertPartTo7Bit(message);
+        } catch (IOException e) {
+            throw new MessagingException("Не удалось перекодировать текст письма.", e);
+        }
+        if (changed) {
+            message.saveChanges();
+        }
+        return changed;
+    }
+
+    private static boolean convertPartTo7Bit(MimePart part) throws MessagingException, IOException {
+        if (part.isMimeType("multipart/*")) {
+            MimeMultipart multipart = (MimeMultipart) part.getContent();
+            boolean changed = false;
+            for (int i = 0; i < multipart.getCount(); i++) {
+                changed |= convertPartTo7Bit((MimeBodyPart) multipart.getBodyPart(i));
+            }
+            return changed;
+        }
+        if (!EIGHT_BIT.equalsIgnoreCase(part.getEncoding())) {
+            return false;
+        }
+        String contentType = part.getContentType();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        part.getDataHandler().writeTo(content);
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(content.toByteArray(), contentType)));
+        part.setHeader("Content-Type", contentType);
+        part.setHeader("Content-Transfer-Encoding", QUOTED_PRINTABLE);
+        return true;
+    }
+
+    /**
+     * Устанавливает тему и текст письма для получателя.
+     *
+     * @param message Письмо.
+     * @param recipient Получатель, значения полей которого подставляются в шаблон.
+     * @throws MessagingException Если текст письма не удалось установить.
+     */
+    private void setContent(MimeMessage message, Recipient recipient) throws MessagingException {
+        message.setHeader("Subject", encodedSubject);
+        if (attachments.isEmpty()) {
+            setText(message, recipient);
+            return;
+        }
+        MimeMultipart multipart = new MimeMultipart("mixed");
+        MimeBodyPart textPart = new MimeBodyPart();
+        setText(textPart, recipient);
+        multipart.addBodyPart(textPart);
+        for (SharedAttachment attachment : attachments) {
+            multipart.addBodyPart(attachment.createBodyPart());
+        }
+        message.setContent(multipart);
+    }
+
+    /**
+     * Устанавливает текст письма для получателя.
+     *
+     * @param part Письмо или его текстовая часть.
+     * @param recipient Получатель, значения полей которого подставляются в шаблон.
+     * @throws MessagingException Если текст письма не удалось установить.
+     */
+    private void setText(MimePart part, Recipient recipient) throws MessagingException {
+        byte[] body = template.renderUtf8(recipient);
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(body, CONTENT_TYPE)));
+        part.setHeader("Content-Type", CONTENT_TYPE);
+        // Длина строк проверяется после подстановки полей: длинное значение поля может удлинить строку шаблона.
+        part.setHeader("Content-Transfer-Encoding", longestLine(body) <= MAX_8BIT_LINE_LENGTH ? EIGHT_BIT : QUOTED_PRINTABLE);
+    }
+
+    private static int longestLine(byte[] text) {
+        int longest = 0;
+        int current = 0;
+        for (byte b : text) {
+            if (b == '\n' || b == '\r') {
+                current = 0;
+            } else {
+                longest = Math.max(longest, ++current);
+            }
+        }
+        return longest;
+    }
+}
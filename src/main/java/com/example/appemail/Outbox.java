@@ -0,0 +1,239 @@
+package com.example.appemail;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс Outbox разделяет подготовку писем и их доставку. Поток рассылки создает письма по шаблону
+ * и записывает их в {@link OutboxSpool} на диске, а отдельный поток передает записанные письма
+ * в {@link BulkEmailDispatcher}, который читает их из очереди как {@link MessageSource}.
+ * Поэтому медленный SMTP сервер не останавливает подготовку писем, пока в очереди есть место,
+ * а письма, подготовленные до перезапуска приложения, доставляются после него без повторной подготовки.
+ * Письмо сохраняется на диск перед передачей на отправку и подтверждается в очереди после
+ * окончательного результата отправки. Очередь должна закрываться после того, как диспетчер
+ * закрыт и отправки, уже взятые им в работу, завершены: рабочие потоки читают письма из очереди
+ * и подтверждают их.
+ * Каждое письмо в очереди адресовано одному получателю, поэтому пакетная отправка не используется.
+ */
+public class Outbox implements MessageSource, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(Outbox.class);
+
+    static final Path DEFAULT_DIRECTORY = Path.of("outbox");
+    private static final String[] IGNORED_HEADERS = {"Bcc"};
+    private static final SpooledMessage END_OF_INPUT = new SpooledMessage("", -1, -1, 0);
+
+    private final OutboxSpool spool;
+    private final MimeMessageFactory messageFactory;
+    private final Session session = Session.getInstance(new Properties());
+    private final Map<String, SpooledMessage> pending = new ConcurrentHashMap<>();
+    private final LongHashSet recovered = new LongHashSet();
+    private final BlockingQueue<SpooledMessage> ready = new LinkedBlockingQueue<>();
+    private Thread feeder;
+    private volatile Exception feederFailure;
+    private volatile boolean closed;
+
+    /**
+     * Конструктор класса Outbox.
+     *
+     * @param spool Очередь писем на диске.
+     * @param messageFactory Фабрика, создающая письма по шаблону.
+     */
+    public Outbox(OutboxSpool spool, MimeMessageFactory messageFactory) {
+        this.spool = spool;
+        this.messageFactory = messageFactory;
+        for (SpooledMessage message : spool.getRecovered()) {
+            recovered.add(AddressFingerprint.of(message.getRecipient()));
+            pending.put(message.getRecipient(), message);
+            ready.add(message);
+        }
+    }
+
+    /**
+     * @return Число писем, восстановленных из очереди при открытии.
+     */
+    public int getRecoveredCount() {
+        return spool.getRecovered().size();
+    }
+
+    /**
+     * Проверяет, было ли письмо получателю восстановлено из очереди при открытии. Такому получателю
+     * письмо не нужно готовить заново, даже если оно уже доставлено.
+     *
+     * @param address Адрес получателя.
+     * @return true, если письмо получателю было восстановлено из очереди.
+     */
+    public boolean isRecovered(String address) {
+        return recovered.contains(AddressFingerprint.of(address));
+    }
+
+    /**
+     * Запускает поток, передающий письма из очереди на отправку. Сначала передаются письма,
+     * восстановленные при открытии очереди.
+     *
+     * @param dispatcher Диспетчер, отправляющий письма.
+     */
+    public void start(BulkEmailDispatcher dispatcher) {
+        feeder = new Thread(() -> feed(dispatcher), "outbox-feeder");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    /**
+     * Создает письмо получателю и записывает его в очередь. Если очередь заполнена,
+     * метод ждет, пока доставка писем не освободит место.
+     *
+     * @param recipient Получатель письма.
+     * @throws MessagingException Если письмо не удалось создать.
+     * @throws IOException Если письмо не удалось записать в очередь или передача писем на отправку
+     *                     остановлена ошибкой.
+     * @throws InterruptedException Если ожидание места в очереди было прервано.
+     */
+    public void enqueue(Recipient recipient) throws MessagingException, IOException, InterruptedException {
+        MimeMessage message = messageFactory.create(recipient);
+        ByteArrayOutputStream content = new ByteArrayOutputStream(4096);
+        message.writeTo(content, IGNORED_HEADERS);
+        SpooledMessage spooled = spool.append(recipient.getEmail(), content.toByteArray());
+        pending.put(spooled.getRecipient(), spooled);
+        ready.put(spooled);
+    }
+
+    /**
+     * Сообщает, что новых писем не будет, и ждет, пока письма очереди будут переданы на отправку.
+     *
+     * @param deliverRemaining true, чтобы передать на отправку все письма очереди; false, чтобы оставить
+     *                         еще не переданные письма на диске до следующего запуска рассылки.
+     * @throws Exception Если передача писем на отправку завершилась ошибкой или ожидание было прервано.
+     */
+    public void finish(boolean deliverRemaining) throws Exception {
+        if (!deliverRemaining) {
+            int left = ready.size();
+            ready.clear();
+            logger.info("Leaving about {} undelivered messages in the outbox", left);
+        }
+        ready.put(END_OF_INPUT);
+        feeder.join();
+        if (feederFailure != null) {
+            throw feederFailure;
+        }
+    }
+
+    /**
+     * Подтверждает письмо в очереди после окончательного результата отправки. Письмо, не отправленное
+     * из-за остановки диспетчера, не подтверждается.
+     *
+     * @param result Результат отправки.
+     */
+    public void onResult(SendResult result) {
+        if (closed) {
+            logger.warn("Outbox is closed; the message for {} stays in the outbox", result.getRecipient());
+            return;
+        }
+        SpooledMessage message = pending.remove(result.getRecipient());
+        if (message == null) {
+            return;
+        }
+        if (BulkEmailDispatcher.isStopped(result)) {
+            // Письмо не отправлялось: оно остается в очереди и будет доставлено при следующем запуске.
+            return;
+        }
+        try {
+            spool.acknowledge(message);
+        } catch (IOException e) {
+            logger.error("Failed to acknowledge outbox message for {}", result.getRecipient(), e);
+        }
+    }
+
+    @Override
+    public MimeMessage create(Recipient recipient) throws MessagingException {
+        if (closed) {
+            throw new MessagingException("Исходящая очередь закрыта.");
+        }
+        SpooledMessage message = pending.get(recipient.getEmail());
+        if (message == null) {
+            throw new MessagingException("Письмо получателю не найдено в исходящей очереди:" + " " + recipient.getEmail());
+        }
+        try {
+            return new MimeMessage(session, new ByteArrayInputStream(spool.read(message)));
+        } catch (IOException e) {
+            throw new MessagingException("Не удалось прочитать письмо из исходящей очереди.", e);
+        }
+    }
+
+    @Override
+    public MimeMessage createShared(Recipient recipient) throws MessagingException {
+        return create(recipient);
+    }
+
+    @Override
+    public String renderKey(Recipient recipient) {
+        return recipient.getEmail();
+    }
+
+    /**
+     * Останавливает передачу писем на отправку, дожидается остановки передающего потока
+     * и закрывает очередь. Недоставленные письма остаются на диске. Вызывается после закрытия диспетчера.
+     *
+     * @throws IOException Если очередь не удалось закрыть.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        boolean interrupted = false;
+        if (feeder != null) {
+            feeder.interrupt();
+            while (feeder.isAlive()) {
+                try {
+                    feeder.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        try {
+            spool.close();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Передает письма из очереди на отправку, пока не встретит признак конца. При ошибке прием писем
+     * в очередь останавливается, чтобы поток рассылки не ждал места, которое уже не освободится.
+     *
+     * @param dispatcher Диспетчер, отправляющий письма.
+     */
+    private void feed(BulkEmailDispatcher dispatcher) {
+        try {
+            SpooledMessage message;
+            while ((message = ready.take()) != END_OF_INPUT && !closed) {
+                spool.sync(message);
+                dispatcher.submit(new Recipient(message.getRecipient(), ""));
+            }
+        } catch (InterruptedException e) {
+            feederFailure = e;
+            spool.abort(new IOException("Передача писем на отправку прервана.", e));
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                logger.error("Outbox feeder failed", e);
+            }
+            feederFailure = e;
+            spool.abort(new IOException("Передача писем на отправку остановлена ошибкой:" + " " + e.getMessage(), e));
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс OutboxSpool — исходящая очередь готовых писем на диске. Письма дописываются в конец
+ * текущего сегмента; когда сегмент достигает заданного размера, начинается новый.
+ * Запись сегмента: {@code длина (4 байта) | CRC32 (4 байта) | длина адреса (2 байта) | адрес | текст письма}.
+ * Подтверждения доставки дописываются в отдельный файл сегмента смещениями записей.
+ * Сегмент, все письма которого доставлены, удаляется вместе с файлом подтверждений.
+ * Письмо сохраняется на диск с fsync перед передачей на отправку ({@link #sync(SpooledMessage)}),
+ * а подтверждение — до возврата из {@link #acknowledge(SpooledMessage)}. Потоки, ожидающие fsync одного
+ * файла, сохраняются одним вызовом, поэтому при частой записи fsync выполняется для группы записей.
+ * При открытии очереди неподтвержденные письма всех сегментов восстанавливаются, а оборванная
+ * при сбое последняя запись отбрасывается.
+ * Число неподтвержденных писем ограничено: запись нового письма ждет, пока доставка не освободит место.
+ * Ввод-вывод выполняется через RandomAccessFile, поэтому прерывание потока не закрывает файлы очереди.
+ */
+public class OutboxSpool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(OutboxSpool.class);
+
+    static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    static final int DEFAULT_MAX_PENDING = 100_000;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String ACK_SUFFIX = ".ack";
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int maxPending;
+    private final Semaphore capacity;
+    private final Map<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final List<SpooledMessage> recovered;
+    private final Object appendLock = new Object();
+    private Segment active;
+    private long nextSegmentId;
+    private volatile IOException failure;
+
+    private OutboxSpool(Path directory, long segmentSize, int maxPending, List<SpooledMessage> recovered, long nextSegmentId) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxPending = maxPending;
+        this.capacity = new Semaphore(maxPending - recovered.size());
+        this.recovered = recovered;
+        this.nextSegmentId = nextSegmentId;
+    }
+
+    /**
+     * Открывает очередь в каталоге и восстанавливает неподтвержденные письма.
+     *
+     * @param directory Каталог очереди. Создается при необходимости.
+     * @param maxPending Максимальное число неподтвержденных писем.
+     * @param segmentSize Размер сегмента в байтах, после которого начинается новый сегмент.
+     * @return Открытая очередь.
+     * @throws IOException Если каталог или сегменты не удалось прочитать.
+     */
+    public static OutboxSpool open(Path directory, int maxPending, long segmentSize) throws IOException {
+        if (maxPending < 1 || segmentSize < 1) {
+            throw new IllegalArgumentException("Размер очереди и сегмента должны быть положительными.");
+        }
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        List<SpooledMessage> recovered = new ArrayList<>();
+        List<Segment> kept = new ArrayList<>();
+        for (Map.Entry<Long, Path> entry : files.entrySet()) {
+            Segment segment = Segment.open(directory, entry.getKey());
+            int before = recovered.size();
+            segment.recover(recovered);
+            if (recovered.size() == before) {
+                segment.delete();
+            } else {
+                kept.add(segment);
+            }
+        }
+        long nextSegmentId = files.isEmpty() ? 1 : files.lastKey() + 1;
+        OutboxSpool spool = new OutboxSpool(directory, segmentSize, maxPending, recovered, nextSegmentId);
+        for (Segment segment : kept) {
+            spool.segments.put(segment.id, segment);
+        }
+        if (!recovered.isEmpty()) {
+            logger.info("Recovered {} undelivered messages from the outbox {}", recovered.size(), directory);
+        }
+        return spool;
+    }
+
+    /**
+     * @return Неподтвержденные письма, восстановленные при открытии очереди, в порядке записи.
+     */
+    public List<SpooledMessage> getRecovered() {
+        return Collections.unmodifiableList(recovered);
+    }
+
+    /**
+     * Записывает письмо в очередь, ожидая свободного места, если неподтвержденных писем слишком много.
+     *
+     * @param recipient Адрес получателя.
+     * @param content Текст письма в формате RFC 822.
+     * @return Описание записанного письма.
+     * @throws IOException Если письмо не удалось записать или прием писем остановлен методом {@link #abort}.
+     * @throws InterruptedException Если ожидание места было прервано.
+     */
+    public SpooledMessage append(String recipient, byte[] content) throws IOException, InterruptedException {
+        checkNotAborted();
+        byte[] address = recipient.getBytes(StandardCharsets.UTF_8);
+        int payloadLength = 2 + address.length + content.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadLength);
+        record.putInt(payloadLength).putInt(0).putShort((short) address.length).put(address).put(content);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, payloadLength);
+        record.putInt(4, (int) crc.getValue());
+
+        capacity.acquire();
+        try {
+            checkNotAborted();
+            synchronized (appendLock) {
+                if (active == null || (active.size > 0 && active.size + record.capacity() > segmentSize)) {
+                    roll();
+                }
+                long offset = active.append(record.array());
+                return new SpooledMessage(recipient, active.id, offset, payloadLength);
+            }
+        } catch (IOException | RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Останавливает прием писем: вызовы {@link #append}, ожидающие свободного места, и все последующие
+     * вызовы завершаются ошибкой. Вызывается, когда письма очереди больше не передаются на отправку
+     * и место в ней не освободится.
+     *
+     * @param cause Причина остановки.
+     */
+    public void abort(IOException cause) {
+        failure = cause;
+        capacity.release(maxPending);
+    }
+
+    private void checkNotAborted() throws IOException {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Сохраняет на диск письмо и все письма, записанные в его сегмент раньше него.
+     * Вызывается перед передачей письма на отправку, чтобы отправленное письмо не пропало
+     * из очереди при сбое и не было подготовлено заново под другим смещением.
+     *
+     * @param message Описание письма.
+     * @throws IOException Если данные не удалось сохранить.
+     */
+    public void sync(SpooledMessage message) throws IOException {
+        Segment segment = segments.get(message.getSegmentId());
+        if (segment != null) {
+            segment.sync(message.getOffset() + HEADER_SIZE + message.getLength());
+        }
+    }
+
+    /**
+     * Читает текст письма из очереди.
+     *
+     * @param message Описание письма.
+     * @return Текст письма в формате RFC 822.
+     * @throws IOException Если письмо не удалось прочитать.
+     */
+    public byte[] read(SpooledMessage message) throws IOException {
+        Segment segment = segments.get(message.getSegmentId());
+        if (segment == null) {
+            throw new IOException("Сегмент исходящей очереди удален:" + " " + message.getSegmentId());
+        }
+        byte[] payload = segment.read(message.getOffset() + HEADER_SIZE, message.getLength());
+        int addressLength = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+        int contentStart = 2 + addressLength;
+        byte[] content = new byte[payload.length - contentStart];
+        System.arraycopy(payload, contentStart, content, 0, content.length);
+        return content;
+    }
+
+    /**
+     * Подтверждает, что письмо больше не нужно хранить: оно доставлено или отклонено окончательно.
+     * Сегмент, все письма которого подтверждены, удаляется.
+     *
+     * @param message Описание письма.
+     * @throws IOException Если подтверждение не удалось записать.
+     */
+    public void acknowledge(SpooledMessage message) throws IOException {
+        Segment segment = segments.get(message.getSegmentId());
+        if (segment == null) {
+            return;
+        }
+        try {
+            if (segment.acknowledge(message.getOffset())) {
+                segments.remove(segment.id);
+                logger.debug("Outbox segment {} compacted", segment.id);
+            }
+        } finally {
+            capacity.release();
+        }
+    }
+
+    /**
+     * Сохраняет записанные данные и закрывает файлы очереди. Недоставленные письма остаются на диске,
+     * а сегменты, все письма которых доставлены, удаляются вместе с опустевшим каталогом.
+     *
+     * @throws IOException Если файлы не удалось закрыть.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (active != null && active.seal()) {
+                segments.remove(active.id);
+            }
+            boolean empty = segments.isEmpty();
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            if (empty) {
+                Files.deleteIfExists(directory);
+            }
+        }
+    }
+
+    /**
+     * Завершает текущий сегмент и начинает новый. Вызывается под блокировкой записи.
+     */
+    private void roll() throws IOException {
+        if (active != null && active.seal()) {
+            segments.remove(active.id);
+        }
+        active = Segment.create(directory, nextSegmentId++);
+        segments.put(active.id, active);
+    }
+
+    /**
+     * Сегмент очереди: файл писем и файл подтверждений.
+     */
+    private static final class Segment {
+        private final long id;
+        private final Path dataPath;
+        private final Path ackPath;
+        private final RandomAccessFile data;
+        private final RandomAccessFile acks;
+        private final Object dataSyncLock = new Object();
+        private final Object ackSyncLock = new Object();
+        private long size;
+        private long syncedSize;
+        private int syncedAcks;
+        private int records;
+        private int acknowledged;
+        private boolean sealed;
+        private boolean deleted;
+        private boolean closed;
+
+        private Segment(long id, Path dataPath, Path ackPath) throws IOException {
+            this.id = id;
+            this.dataPath = dataPath;
+            this.ackPath = ackPath;
+            this.data = new RandomAccessFile(dataPath.toFile(), "rw");
+            try {
+                this.acks = new RandomAccessFile(ackPath.toFile(), "rw");
+            } catch (IOException e) {
+                data.close();
+                throw e;
+            }
+        }
+
+        static Segment create(Path directory, long id) throws IOException {
+            return new Segment(id, directory.resolve(fileName(id, SEGMENT_SUFFIX)), directory.resolve(fileName(id, ACK_SUFFIX)));
+        }
+
+        static Segment open(Path directory, long id) throws IOException {
+            Segment segment = create(directory, id);
+            segment.sealed = true;
+            return segment;
+        }
+
+        private static String fileName(long id, String suffix) {
+            return String.format("%012d%s", id, suffix);
+        }
+
+        synchronized long append(byte[] record) throws IOException {
+            long offset = size;
+            data.seek(offset);
+            data.write(record);
+            size += record.length;
+            records++;
+            return offset;
+        }
+
+        /**
+         * Сохраняет данные сегмента на диск, если байты до {@code end} еще не сохранены.
+         * fsync выполняется без блокировки сегмента, чтобы не задерживать запись и чтение писем.
+         */
+        void sync(long end) throws IOException {
+            synchronized (dataSyncLock) {
+                if (syncedSize >= end) {
+                    return;
+                }
+                long target;
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    target = size;
+                }
+                data.getFD().sync();
+                syncedSize = target;
+            }
+        }
+
+        synchronized byte[] read(long position, int length) throws IOException {
+            byte[] buffer = new byte[length];
+            data.seek(position);
+            data.readFully(buffer);
+            return buffer;
+        }
+
+        /**
+         * Записывает подтверждение письма и сохраняет его на диск. Если fsync файла подтверждений
+         * уже выполняется другим потоком, подтверждение сохраняется следующим fsync вместе
+         * с подтверждениями, записанными за это время.
+         *
+         * @return true, если сегмент завершен, все его письма подтверждены и он удален.
+         */
+        boolean acknowledge(long offset) throws IOException {
+            int written;
+            synchronized (this) {
+                if (deleted) {
+                    return true;
+                }
+                acks.seek(acks.length());
+                acks.writeLong(offset);
+                acknowledged++;
+                if (deleteIfDone()) {
+                    return true;
+                }
+                written = acknowledged;
+            }
+            synchronized (ackSyncLock) {
+                if (syncedAcks >= written) {
+                    return false;
+                }
+                int target;
+                synchronized (this) {
+                    if (closed) {
+                        return false;
+                    }
+                    target = acknowledged;
+                }
+                acks.getFD().sync();
+                syncedAcks = target;
+            }
+            return false;
+        }
+
+        /**
+         * Завершает сегмент: новые письма в него больше не пишутся.
+         *
+         * @return true, если все письма сегмента уже подтверждены и он удален.
+         */
+        synchronized boolean seal() throws IOException {
+            sealed = true;
+            data.getFD().sync();
+            return deleteIfDone();
+        }
+
+        /**
+         * Читает записи сегмента и добавляет неподтвержденные в список. Оборванная запись в конце отбрасывается.
+         */
+        synchronized void recover(List<SpooledMessage> recovered) throws IOException {
+            LongHashSet acked = new LongHashSet();
+            long ackCount = acks.length() / Long.BYTES;
+            acks.seek(0);
+            for (long i = 0; i < ackCount; i++) {
+                acked.add(acks.readLong());
+            }
+            acks.setLength(ackCount * Long.BYTES);
+            long length = data.length();
+            long position = 0;
+            byte[] header = new byte[HEADER_SIZE];
+            CRC32 crc = new CRC32();
+            while (position + HEADER_SIZE <= length) {
+                data.seek(position);
+                data.readFully(header);
+                ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+                int payloadLength = headerBuffer.getInt();
+                int checksum = headerBuffer.getInt();
+                if (payloadLength < 2 || position + HEADER_SIZE + payloadLength > length) {
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                data.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                records++;
+                if (acked.contains(position)) {
+                    acknowledged++;
+                } else {
+                    int addressLength = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+                    String recipient = new String(payload, 2, addressLength, StandardCharsets.UTF_8);
+                    recovered.add(new SpooledMessage(recipient, id, position, payloadLength));
+                }
+                position += HEADER_SIZE + payloadLength;
+            }
+            if (position < length) {
+                logger.warn("Discarding {} bytes of an incomplete outbox record in {}", length - position, dataPath);
+                data.setLength(position);
+            }
+            size = position;
+            syncedSize = position;
+            syncedAcks = acknowledged;
+        }
+
+        private boolean deleteIfDone() throws IOException {
+            if (!sealed || acknowledged < records) {
+                return false;
+            }
+            delete();
+            return true;
+        }
+
+        synchronized void delete() throws IOException {
+            deleted = true;
+            close();
+            Files.deleteIfExists(dataPath);
+            Files.deleteIfExists(ackPath);
+        }
+
+        synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (!deleted) {
+                    data.getFD().sync();
+                }
+                data.close();
+            } finally {
+                try {
+                    if (!deleted) {
+                        acks.getFD().sync();
+                    }
+                } finally {
+                    acks.close();
+                }
+            }
+        }
+    }
+}
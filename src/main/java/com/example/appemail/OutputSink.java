@@ -0,0 +1,18 @@
+package com.example.appemail;
+
+/**
+ * Интерфейс OutputSink описывает приемник сообщений о ходе работы приложения.
+ * Классы чтения файлов и отправки писем выводят информацию только через этот интерфейс,
+ * поэтому могут использоваться как с графическим интерфейсом, так и без него.
+ * Реализации должны допускать вызов из любых потоков.
+ */
+@FunctionalInterface
+public interface OutputSink {
+
+    /**
+     * Добавляет текст в приемник вывода.
+     *
+     * @param text Текст для вывода.
+     */
+    void appendText(String text);
+}
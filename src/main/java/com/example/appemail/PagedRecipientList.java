@@ -0,0 +1,96 @@
+package com.example.appemail;
+
+import javafx.collections.ObservableListBase;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Класс PagedRecipientList представляет {@link PagedRecipientSource} в виде списка для TableView.
+ * Таблица запрашивает только видимые строки, а список загружает содержащие их страницы
+ * и хранит не более {@link #MAX_CACHED_PAGES} последних использованных страниц.
+ * Размер списка растет по мере просмотра файла источником. Страница, которую не удалось прочитать,
+ * не кэшируется: ее строки возвращаются как null, об ошибке сообщается обработчику, а при следующем
+ * обращении страница читается заново. Используется только в потоке JavaFX.
+ */
+public class PagedRecipientList extends ObservableListBase<RecipientRow> {
+
+    private static final Logger logger = LogManager.getLogger(PagedRecipientList.class);
+
+    static final int MAX_CACHED_PAGES = 32;
+
+    private final PagedRecipientSource source;
+    private final Consumer<IOException> failureHandler;
+    private final Map<Integer, List<RecipientRow>> pages = new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<RecipientRow>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private int size;
+
+    /**
+     * Конструктор класса PagedRecipientList.
+     *
+     * @param source Источник строк файла адресов.
+     * @param failureHandler Обработчик ошибки чтения страницы; вызывается в потоке JavaFX.
+     */
+    public PagedRecipientList(PagedRecipientSource source, Consumer<IOException> failureHandler) {
+        this.source = source;
+        this.failureHandler = failureHandler;
+    }
+
+    @Override
+    public RecipientRow get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " вне диапазона 0.." + size);
+        }
+        List<RecipientRow> page = pages.get(index / PagedRecipientSource.PAGE_SIZE);
+        if (page == null) {
+            page = loadPage(index / PagedRecipientSource.PAGE_SIZE);
+            if (page == null) {
+                return null;
+            }
+        }
+        int offset = index % PagedRecipientSource.PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Добавляет в конец списка строки, проиндексированные источником с прошлого вызова.
+     */
+    public void refresh() {
+        int newSize = source.getMatchedCount();
+        if (newSize <= size) {
+            return;
+        }
+        beginChange();
+        nextAdd(size, newSize);
+        size = newSize;
+        endChange();
+    }
+
+    private List<RecipientRow> loadPage(int page) {
+        List<RecipientRow> rows;
+        try {
+            rows = source.loadPage(page);
+        } catch (IOException e) {
+            logger.error("Failed to load page {} of the recipient file", page, e);
+            failureHandler.accept(e);
+            return null;
+        }
+        pages.put(page, rows);
+        return rows;
+    }
+}
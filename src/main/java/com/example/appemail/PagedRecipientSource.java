@@ -0,0 +1,321 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс PagedRecipientSource — постраничный источник строк файла адресов для таблицы получателей.
+ * Фоновый поток один раз просматривает файл, подсчитывает строки и корректные адреса и запоминает
+ * смещение начала каждой страницы из {@link #PAGE_SIZE} строк, подходящих под фильтр по домену.
+ * Сами строки в памяти не хранятся: страница читается из файла по запомненному смещению,
+ * когда ее запрашивает таблица. Счетчики доступны во время просмотра и растут по мере его продвижения.
+ */
+public class PagedRecipientSource implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(PagedRecipientSource.class);
+
+    static final int PAGE_SIZE = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Path path;
+    private final String domainFilter;
+    private final FileChannel pageChannel;
+    private final long fileSize;
+    private final Object pageIndexLock = new Object();
+    private long[] pageOffsets = new long[64];
+    private int[] pageLineNumbers = new int[64];
+    private volatile String[] columns = Recipient.DEFAULT_COLUMNS;
+    private volatile int rowCount;
+    private volatile int validCount;
+    private volatile int matchedCount;
+    private volatile long scannedBytes;
+    private volatile boolean completed;
+    private volatile boolean closed;
+    private volatile String failure;
+
+    private PagedRecipientSource(Path path, String domainFilter, FileChannel pageChannel) throws IOException {
+        this.path = path;
+        this.domainFilter = domainFilter;
+        this.pageChannel = pageChannel;
+        this.fileSize = pageChannel.size();
+    }
+
+    /**
+     * Открывает файл адресов и запускает его просмотр в фоновом потоке.
+     *
+     * @param path Путь к файлу адресов.
+     * @param domainFilter Домен, строки которого попадают в источник, или пустая строка для всех строк.
+     *                     Поддомены указанного домена также подходят под фильтр.
+     * @return Открытый источник.
+     * @throws IOException Если файл не удалось открыть.
+     */
+    public static PagedRecipientSource open(Path path, String domainFilter) throws IOException {
+        String filter = domainFilter.trim().toLowerCase(Locale.ROOT);
+        if (filter.startsWith("@")) {
+            filter = filter.substring(1);
+        }
+        PagedRecipientSource source = new PagedRecipientSource(path, filter, FileChannel.open(path, StandardOpenOption.READ));
+        Thread indexer = new Thread(source::index, "recipient-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+        return source;
+    }
+
+    /**
+     * @return Число строк с получателями, просмотренных к текущему моменту. Пустые строки считаются
+     * некорректными, как и при рассылке.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return Число корректных получателей среди просмотренных строк.
+     */
+    public int getValidCount() {
+        return validCount;
+    }
+
+    /**
+     * @return Число просмотренных строк, подходящих под фильтр по домену. Строки с меньшими номерами
+     * доступны через {@link #loadPage(int)}.
+     */
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * @return Доля просмотренной части файла от 0 до 1.
+     */
+    public double getProgress() {
+        return fileSize == 0 ? 1 : (double) scannedBytes / fileSize;
+    }
+
+    /**
+     * @return true, если файл просмотрен до конца или просмотр прерван ошибкой.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return Описание ошибки, прервавшей просмотр файла, или null, если ошибки не было.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Читает страницу строк, подходящих под фильтр. Страница с номером {@code n} содержит строки
+     * с {@code n * PAGE_SIZE} по {@code (n + 1) * PAGE_SIZE - 1}.
+     *
+     * @param page Номер страницы; страница должна начинаться раньше {@link #getMatchedCount()}.
+     * @return Строки страницы.
+     * @throws IOException Если файл не удалось прочитать.
+     */
+    public synchronized List<RecipientRow> loadPage(int page) throws IOException {
+        long offset;
+        int lineNumber;
+        synchronized (pageIndexLock) {
+            if (page < 0 || (long) page * PAGE_SIZE >= matchedCount) {
+                throw new IndexOutOfBoundsException("Страница " + page + " еще не проиндексирована.");
+            }
+            offset = pageOffsets[page];
+            lineNumber = pageLineNumbers[page];
+        }
+        String[] fileColumns = columns;
+        LineScanner scanner = new LineScanner(pageChannel, offset, lineNumber);
+        List<RecipientRow> rows = new ArrayList<>(PAGE_SIZE);
+        String line;
+        while (rows.size() < PAGE_SIZE && (line = scanner.nextLine()) != null) {
+            RecipientRow row = RecipientRow.parse(scanner.getLineNumber(), line, fileColumns);
+            if (matches(row)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Останавливает просмотр файла и закрывает его.
+     *
+     * @throws IOException Если файл не удалось закрыть.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        pageChannel.close();
+    }
+
+    /**
+     * Просматривает файл: подсчитывает строки и запоминает начало каждой страницы.
+     * Выполняется в фоновом потоке; счетчики публикуются после каждой страницы просмотренных строк.
+     */
+    private void index() {
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            LineScanner scanner = new LineScanner(channel, 0, 1);
+            String line = scanner.nextLine();
+            String[] header = RecipientLineTokenizer.parseHeader(line);
+            if (header != null) {
+                columns = header;
+                line = scanner.nextLine();
+            }
+            String[] fileColumns = columns;
+            int rows = 0;
+            int valid = 0;
+            int matched = 0;
+            while (line != null && !closed) {
+                RecipientRow row = RecipientRow.parse(scanner.getLineNumber(), line, fileColumns);
+                rows++;
+                if (row.isValid()) {
+                    valid++;
+                }
+                if (matches(row)) {
+                    if (matched % PAGE_SIZE == 0) {
+                        addPage(matched / PAGE_SIZE, scanner.getLineStart(), scanner.getLineNumber());
+                    }
+                    matched++;
+                }
+                if (rows % PAGE_SIZE == 0) {
+                    publish(rows, valid, matched, scanner.getPosition());
+                }
+                line = scanner.nextLine();
+            }
+            publish(rows, valid, matched, closed ? scanner.getPosition() : fileSize);
+            logger.info("Indexed recipient file {} in {} ms. Rows: {}, valid: {}, matching '{}': {}",
+                    path, (System.nanoTime() - started) / 1_000_000, rows, valid, domainFilter, matched);
+        } catch (IOException e) {
+            if (!closed) {
+                failure = e.getMessage();
+                logger.error("Failed to index recipient file {}", path, e);
+            }
+        } finally {
+            completed = true;
+        }
+    }
+
+    private boolean matches(RecipientRow row) {
+        if (domainFilter.isEmpty()) {
+            return true;
+        }
+        String domain = row.getDomain();
+        return domain.endsWith(domainFilter)
+                && (domain.length() == domainFilter.length() || domain.charAt(domain.length() - domainFilter.length() - 1) == '.');
+    }
+
+    private void addPage(int page, long offset, int lineNumber) {
+        synchronized (pageIndexLock) {
+            if (page == pageOffsets.length) {
+                pageOffsets = Arrays.copyOf(pageOffsets, page * 2);
+                pageLineNumbers = Arrays.copyOf(pageLineNumbers, page * 2);
+            }
+            pageOffsets[page] = offset;
+            pageLineNumbers[page] = lineNumber;
+        }
+    }
+
+    private void publish(int rows, int valid, int matched, long position) {
+        synchronized (pageIndexLock) {
+            matchedCount = matched;
+        }
+        rowCount = rows;
+        validCount = valid;
+        scannedBytes = position;
+    }
+
+    /**
+     * Построчное чтение файла в кодировке UTF-8 с заданного смещения с учетом смещения и номера каждой строки.
+     */
+    private static final class LineScanner {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long bufferStart;
+        private long lineStart;
+        private int lineNumber;
+        private boolean endOfFile;
+
+        private LineScanner(FileChannel channel, long offset, int firstLineNumber) {
+            this.channel = channel;
+            this.bufferStart = offset;
+            this.lineNumber = firstLineNumber - 1;
+            this.buffer.limit(0);
+        }
+
+        /**
+         * @return Следующая строка без символов перевода строки или null в конце файла.
+         * @throws IOException Если файл не удалось прочитать.
+         */
+        String nextLine() throws IOException {
+            int scanFrom = buffer.position();
+            while (true) {
+                for (int i = scanFrom; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        return take(i, i + 1);
+                    }
+                }
+                int unread = buffer.remaining();
+                if (endOfFile || !fill()) {
+                    return unread > 0 ? take(buffer.limit(), buffer.limit()) : null;
+                }
+                scanFrom = unread;
+            }
+        }
+
+        long getLineStart() {
+            return lineStart;
+        }
+
+        int getLineNumber() {
+            return lineNumber;
+        }
+
+        long getPosition() {
+            return bufferStart + buffer.position();
+        }
+
+        /**
+         * Переносит непрочитанные байты в начало буфера и дочитывает файл после них.
+         * Буфер увеличивается, если в нем не помещается одна строка.
+         */
+        private boolean fill() throws IOException {
+            bufferStart += buffer.position();
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            int read = channel.read(buffer, bufferStart + buffer.position());
+            buffer.flip();
+            endOfFile = read <= 0;
+            return !endOfFile;
+        }
+
+        private String take(int end, int next) {
+            int start = buffer.position();
+            int contentEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+            String line = new String(buffer.array(), start, contentEnd - start, StandardCharsets.UTF_8);
+            lineStart = bufferStart + start;
+            lineNumber++;
+            buffer.position(next);
+            if (lineStart == 0 && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+                return line.substring(1);
+            }
+            return line;
+        }
+    }
+}
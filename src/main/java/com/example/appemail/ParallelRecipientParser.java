@@ -0,0 +1,284 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Класс ParallelRecipientParser разбирает большой файл адресов на нескольких ядрах.
+ * Файл делится на фрагменты примерно по {@link #DEFAULT_CHUNK_SIZE} байт, выровненные по концу строки.
+ * Каждый фрагмент отображается в память, декодируется и разбирается {@link RecipientLineTokenizer}
+ * в отдельной задаче пула ForkJoin. Получатели выдаются в порядке строк файла, а сообщения
+ * о некорректных строках — с номерами строк файла. Одновременно в разборе находится не более
+ * двух фрагментов на поток пула, поэтому расход памяти не зависит от размера файла.
+ */
+public class ParallelRecipientParser {
+
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int BOUNDARY_SCAN_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Создает разборщик, использующий общий пул ForkJoin и фрагменты размера по умолчанию.
+     */
+    public ParallelRecipientParser() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Конструктор класса ParallelRecipientParser.
+     *
+     * @param pool Пул, в котором разбираются фрагменты.
+     * @param chunkSize Примерный размер фрагмента в байтах.
+     */
+    public ParallelRecipientParser(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Размер фрагмента должен быть положительным.");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Возвращает ленивый поток получателей из файла. Если первая строка файла является заголовком
+     * вида {@code #email, name, company}, дополнительные столбцы становятся полями получателя.
+     * Поток необходимо закрыть после использования; ошибки чтения во время обхода
+     * выбрасываются как UncheckedIOException.
+     *
+     * @param path Путь к файлу с адресами.
+     * @param output Приемник для вывода сообщений о некорректных строках.
+     * @return Поток получателей с корректными адресами электронной почты.
+     * @throws IOException Если файл не удалось открыть.
+     */
+    public Stream<Recipient> stream(Path path, OutputSink output) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ChunkIterator iterator = new ChunkIterator(channel, output);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Итератор, который делит файл на фрагменты, отправляет их на разбор с опережением
+     * и выдает получателей фрагментов по порядку.
+     */
+    private class ChunkIterator implements Iterator<Recipient> {
+        private final FileChannel channel;
+        private final OutputSink output;
+        private final long size;
+        private final String[] columns;
+        private final Deque<ForkJoinTask<ParsedChunk>> inFlight = new ArrayDeque<>();
+        private final int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+        private long nextChunkStart;
+        private long lineOffset;
+        private Iterator<Recipient> current = Collections.emptyIterator();
+
+        ChunkIterator(FileChannel channel, OutputSink output) throws IOException {
+            this.channel = channel;
+            this.output = output;
+            this.size = channel.size();
+            long bodyStart = skipByteOrderMark();
+            long firstLineEnd = findLineEnd(bodyStart, Long.MAX_VALUE);
+            String firstLine = decode(bodyStart, firstLineEnd);
+            String[] header = RecipientLineTokenizer.parseHeader(stripCarriageReturn(firstLine));
+            if (header != null) {
+                this.columns = header;
+                this.nextChunkStart = Math.min(size, firstLineEnd + 1);
+                this.lineOffset = 1;
+            } else {
+                this.columns = Recipient.DEFAULT_COLUMNS;
+                this.nextChunkStart = bodyStart;
+            }
+            fillPipeline();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (inFlight.isEmpty()) {
+                    return false;
+                }
+                ParsedChunk chunk = join(inFlight.poll());
+                fillPipeline();
+                for (ChunkMessage message : chunk.messages) {
+                    output.appendText("Строка" + " " + (lineOffset + message.line) + ": " + message.text);
+                }
+                lineOffset += chunk.lineCount;
+                current = chunk.recipients.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Recipient next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        void close() {
+            for (ForkJoinTask<ParsedChunk> task : inFlight) {
+                task.cancel(false);
+            }
+            inFlight.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Отправляет на разбор следующие фрагменты, пока их не станет {@link #maxInFlight}.
+         */
+        private void fillPipeline() {
+            try {
+                while (inFlight.size() < maxInFlight && nextChunkStart < size) {
+                    long start = nextChunkStart;
+                    long end = Math.min(size, findLineEnd(Math.min(size, start + chunkSize), size) + 1);
+                    nextChunkStart = end;
+                    inFlight.add(pool.submit(() -> parseChunk(start, end)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Разбирает фрагмент файла. Выполняется в потоке пула.
+         *
+         * @param start Смещение начала фрагмента.
+         * @param end Смещение конца фрагмента (после символа перевода строки).
+         * @return Разобранный фрагмент.
+         */
+        private ParsedChunk parseChunk(long start, long end) throws IOException {
+            String text = decode(start, end);
+            ParsedChunk chunk = new ParsedChunk();
+            int lineStart = 0;
+            int length = text.length();
+            while (lineStart < length) {
+                int newline = text.indexOf('\n', lineStart);
+                int lineEnd = newline < 0 ? length : newline;
+                int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                int line = ++chunk.lineCount;
+                Recipient recipient = RecipientLineTokenizer.parse(text, lineStart, contentEnd, columns,
+                        message -> chunk.messages.add(new ChunkMessage(line, message)));
+                if (recipient != null) {
+                    chunk.recipients.add(recipient);
+                }
+                lineStart = lineEnd + 1;
+            }
+            return chunk;
+        }
+
+        private String decode(long start, long end) throws IOException {
+            if (end <= start) {
+                return "";
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            byte[] bytes = new byte[(int) (end - start)];
+            mapped.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Ищет конец строки, начиная с заданного смещения.
+         *
+         * @param from Смещение, с которого начинается поиск.
+         * @param limit Смещение, дальше которого поиск не ведется.
+         * @return Смещение символа перевода строки или размер файла, если его нет.
+         */
+        private long findLineEnd(long from, long limit) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+            long position = from;
+            while (position < size && position < limit) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return position + i;
+                    }
+                }
+                position += read;
+            }
+            return size;
+        }
+
+        private long skipByteOrderMark() throws IOException {
+            ByteBuffer bom = ByteBuffer.allocate(3);
+            channel.read(bom, 0);
+            boolean hasBom = bom.position() == 3 && (bom.get(0) & 0xFF) == 0xEF
+                    && (bom.get(1) & 0xFF) == 0xBB && (bom.get(2) & 0xFF) == 0xBF;
+            return hasBom ? 3 : 0;
+        }
+
+        private ParsedChunk join(ForkJoinTask<ParsedChunk> task) {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Разбор файла адресов прерван.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw new UncheckedIOException((IOException) e.getCause());
+                }
+                throw new IllegalStateException("Не удалось разобрать файл адресов.", e.getCause());
+            }
+        }
+    }
+
+    private static String stripCarriageReturn(String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    /**
+     * Результат разбора фрагмента: получатели, число строк и сообщения о некорректных строках.
+     */
+    private static class ParsedChunk {
+        private final List<Recipient> recipients = new ArrayList<>();
+        private final List<ChunkMessage> messages = new ArrayList<>();
+        private int lineCount;
+    }
+
+    /**
+     * Сообщение о некорректной строке с номером строки внутри фрагмента, начиная с 1.
+     */
+    private static class ChunkMessage {
+        private final int line;
+        private final String text;
+
+        ChunkMessage(int line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.appemail;
+
+/**
+ * Интерфейс PasswordSource выдает пароль учетной записи непосредственно перед аутентификацией.
+ * Каждый вызов возвращает новый массив, который вызывающий код должен затереть после использования.
+ */
+@FunctionalInterface
+public interface PasswordSource {
+
+    /**
+     * @return Новый массив с паролем.
+     */
+    char[] getPassword();
+}
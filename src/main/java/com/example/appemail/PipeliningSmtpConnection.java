@@ -0,0 +1,483 @@
+package com.example.appemail;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPOutputStream;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс PipeliningSmtpConnection — собственный клиент ESMTP, не использующий Transport из javax.mail.
+ * Если сервер поддерживает расширение PIPELINING (RFC 2920), команды MAIL FROM, все RCPT TO и DATA
+ * отправляются одним пакетом, а ответы на них читаются после этого, поэтому транзакция занимает
+ * два обмена с сервером вместо 2 + N. Поддерживаются STARTTLS, AUTH PLAIN и AUTH LOGIN, а также 8BITMIME.
+ * Ошибки выбрасываются теми же исключениями, что и в javax.mail (SMTPSendFailedException и другие),
+ * поэтому классификация ошибок и частичная отправка работают одинаково для обоих клиентов.
+ */
+public class PipeliningSmtpConnection implements SmtpConnection {
+
+    private static final Logger logger = LogManager.getLogger(PipeliningSmtpConnection.class);
+
+    static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    static final int READ_TIMEOUT_MILLIS = 30_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] END_OF_DATA = {'.', '\r', '\n'};
+    private static final String[] IGNORED_HEADERS = {"Bcc", "Content-Length"};
+    private static final String LOCAL_HOST = localHostName();
+
+    private final String host;
+    private final int port;
+    private final Map<String, String> extensions = new HashMap<>();
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private boolean broken;
+
+    private PipeliningSmtpConnection(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Создает фабрику соединений с конвейерной передачей команд.
+     *
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param username Имя пользователя для SMTP сервера.
+     * @param passwordSource Источник пароля для SMTP сервера.
+     * @return Фабрика соединений.
+     */
+    public static SmtpConnectionFactory factory(String host, int port, String username, PasswordSource passwordSource) {
+        return () -> {
+            PipeliningSmtpConnection connection = new PipeliningSmtpConnection(host, port);
+            try {
+                connection.connect(username, passwordSource);
+            } catch (MessagingException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+            return connection;
+        };
+    }
+
+    @Override
+    public void send(Message message, Address[] recipients) throws MessagingException {
+        if (!isConnected()) {
+            throw new MessagingException("Соединение с SMTP сервером закрыто.");
+        }
+        InternetAddress sender = envelopeSender(message);
+        if (message instanceof MimeMessage && !extensions.containsKey("8BITMIME")) {
+            MimeMessageFactory.convertTo7Bit((MimeMessage) message);
+        }
+        try {
+            sendTransaction(message, sender, recipients);
+        } catch (IOException e) {
+            markBroken();
+            throw new MessagingException("Ошибка обмена данными с SMTP сервером" + " " + host + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !broken && socket != null && !socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        if (isConnected()) {
+            try {
+                socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+                writeCommand("QUIT");
+                out.flush();
+                readReply();
+            } catch (IOException e) {
+                logger.debug("Failed to close SMTP connection cleanly: {}", e.getMessage());
+            }
+        }
+        markBroken();
+    }
+
+    /**
+     * Подключается к серверу, согласует расширения ESMTP, включает TLS, если сервер его поддерживает,
+     * и проходит аутентификацию.
+     *
+     * @param username Имя пользователя для SMTP сервера.
+     * @param passwordSource Источник пароля для SMTP сервера.
+     * @throws MessagingException Если не удалось подключиться или пройти аутентификацию.
+     */
+    private void connect(String username, PasswordSource passwordSource) throws MessagingException {
+        try {
+            Socket plain = new Socket();
+            plain.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            attach(plain);
+            Reply greeting = readReply();
+            if (greeting.code != 220) {
+                throw new MessagingException("SMTP сервер отклонил подключение:" + " " + greeting.text);
+            }
+            hello();
+            if (extensions.containsKey("STARTTLS")) {
+                startTls();
+                hello();
+            }
+            if (extensions.containsKey("AUTH")) {
+                authenticate(username, passwordSource);
+            }
+        } catch (IOException e) {
+            markBroken();
+            throw new MessagingException("Не удалось подключиться к SMTP серверу" + " " + host + ":" + port + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void attach(Socket socket) throws IOException {
+        socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        socket.setTcpNoDelay(true);
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+    }
+
+    /**
+     * Отправляет EHLO и запоминает расширения сервера. Если сервер не поддерживает EHLO, отправляет HELO.
+     */
+    private void hello() throws IOException, MessagingException {
+        extensions.clear();
+        Reply reply = exchange("EHLO " + LOCAL_HOST);
+        if (reply.code == 250) {
+            String[] lines = reply.text.split("\n");
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i].length() > 4 ? lines[i].substring(4) : "";
+                int space = line.indexOf(' ');
+                String keyword = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+                extensions.put(keyword, space < 0 ? "" : line.substring(space + 1).toUpperCase(Locale.ROOT));
+            }
+            return;
+        }
+        reply = exchange("HELO " + LOCAL_HOST);
+        if (reply.code != 250) {
+            throw new MessagingException("SMTP сервер отклонил приветствие:" + " " + reply.text);
+        }
+    }
+
+    private void startTls() throws IOException, MessagingException {
+        Reply reply = exchange("STARTTLS");
+        if (reply.code != 220) {
+            throw new MessagingException("SMTP сервер отклонил STARTTLS:" + " " + reply.text);
+        }
+        SSLSocket ssl = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(socket, host, port, true);
+        SSLParameters parameters = ssl.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        ssl.setSSLParameters(parameters);
+        ssl.setUseClientMode(true);
+        ssl.startHandshake();
+        attach(ssl);
+    }
+
+    /**
+     * Проходит аутентификацию механизмом PLAIN или, если сервер его не поддерживает, LOGIN.
+     * Пароль и его закодированные копии затираются после отправки.
+     */
+    private void authenticate(String username, PasswordSource passwordSource) throws IOException, MessagingException {
+        String mechanisms = " " + extensions.get("AUTH") + " ";
+        boolean plain = mechanisms.contains(" PLAIN ");
+        if (!plain && !mechanisms.contains(" LOGIN ")) {
+            throw new MessagingException("SMTP сервер не поддерживает механизмы аутентификации PLAIN и LOGIN:" + " " + mechanisms.trim());
+        }
+        char[] password = passwordSource.getPassword();
+        byte[] passwordBytes = encode(password);
+        Arrays.fill(password, '\0');
+        byte[] user = username.getBytes(StandardCharsets.UTF_8);
+        Reply reply;
+        if (plain) {
+            byte[] credentials = new byte[user.length + passwordBytes.length + 2];
+            System.arraycopy(user, 0, credentials, 1, user.length);
+            System.arraycopy(passwordBytes, 0, credentials, user.length + 2, passwordBytes.length);
+            reply = exchange("AUTH PLAIN", credentials);
+            Arrays.fill(credentials, (byte) 0);
+        } else {
+            reply = exchange("AUTH LOGIN");
+            if (reply.code == 334) {
+                reply = exchange("", user);
+            }
+            if (reply.code == 334) {
+                reply = exchange("", passwordBytes);
+            }
+        }
+        Arrays.fill(passwordBytes, (byte) 0);
+        if (reply.code != 235) {
+            throw new AuthenticationFailedException(reply.text);
+        }
+    }
+
+    /**
+     * Выполняет одну SMTP транзакцию. При поддержке PIPELINING команды конверта и DATA
+     * отправляются вместе, иначе каждая команда ждет ответа на предыдущую.
+     */
+    private void sendTransaction(Message message, InternetAddress sender, Address[] recipients)
+            throws IOException, MessagingException {
+        boolean pipelining = extensions.containsKey("PIPELINING");
+        String mailCommand = "MAIL FROM:<" + sender.getAddress() + ">" + (extensions.containsKey("8BITMIME") ? " BODY=8BITMIME" : "");
+        Reply mailReply;
+        Reply[] recipientReplies = new Reply[recipients.length];
+        Reply dataReply = null;
+        if (pipelining) {
+            writeCommand(mailCommand);
+            for (Address recipient : recipients) {
+                writeCommand("RCPT TO:<" + ((InternetAddress) recipient).getAddress() + ">");
+            }
+            writeCommand("DATA");
+            out.flush();
+            mailReply = readReply();
+            for (int i = 0; i < recipients.length; i++) {
+                recipientReplies[i] = readReply();
+            }
+            dataReply = readReply();
+        } else {
+            mailReply = exchange(mailCommand);
+            boolean anyAccepted = false;
+            for (int i = 0; i < recipients.length && mailReply.isPositive(); i++) {
+                recipientReplies[i] = exchange("RCPT TO:<" + ((InternetAddress) recipients[i]).getAddress() + ">");
+                anyAccepted |= recipientReplies[i].isPositive();
+            }
+            if (anyAccepted) {
+                dataReply = exchange("DATA");
+            }
+        }
+
+        if (!mailReply.isPositive()) {
+            abort(dataReply);
+            throw new SMTPSenderFailedException(sender, mailCommand, mailReply.code, mailReply.text);
+        }
+        List<Address> accepted = new ArrayList<>();
+        List<Address> rejected = new ArrayList<>();
+        MessagingException rejections = null;
+        for (int i = 0; i < recipients.length; i++) {
+            if (recipientReplies[i].isPositive()) {
+                accepted.add(recipients[i]);
+                continue;
+            }
+            rejected.add(recipients[i]);
+            SMTPAddressFailedException rejection = new SMTPAddressFailedException((InternetAddress) recipients[i],
+                    "RCPT TO", recipientReplies[i].code, recipientReplies[i].text);
+            if (rejections == null) {
+                rejections = rejection;
+            } else {
+                rejections.setNextException(rejection);
+            }
+        }
+        Address[] valid = accepted.toArray(new Address[0]);
+        Address[] invalid = rejected.toArray(new Address[0]);
+        if (valid.length == 0) {
+            abort(dataReply);
+            throw new SendFailedException("Invalid Addresses", rejections, new Address[0], new Address[0], invalid);
+        }
+        if (dataReply.code != 354) {
+            abort(dataReply);
+            throw new SMTPSendFailedException("DATA", dataReply.code, dataReply.text, rejections, new Address[0], valid, invalid);
+        }
+        Reply endReply;
+        try {
+            writeContent(message);
+            endReply = readReply();
+        } catch (IOException | MessagingException | RuntimeException e) {
+            // После ответа 354 сервер ждет текст письма до завершающей точки, и сбросить сессию
+            // командой RSET уже нельзя, поэтому соединение не возвращается в пул.
+            markBroken();
+            throw e;
+        }
+        if (!endReply.isPositive()) {
+            throw new SMTPSendFailedException(".", endReply.code, endReply.text, rejections, new Address[0], valid, invalid);
+        }
+        if (invalid.length > 0) {
+            throw new SMTPSendFailedException(".", endReply.code, endReply.text, rejections, valid, new Address[0], invalid);
+        }
+    }
+
+    /**
+     * Завершает неудавшуюся транзакцию: если сервер все же принял DATA, передает пустое письмо,
+     * после чего сбрасывает состояние сессии командой RSET.
+     */
+    private void abort(Reply dataReply) throws IOException {
+        if (dataReply != null && dataReply.code == 354) {
+            out.write(END_OF_DATA);
+            out.flush();
+            readReply();
+        }
+        Reply reset = exchange("RSET");
+        if (!reset.isPositive()) {
+            markBroken();
+        }
+    }
+
+    /**
+     * Передает текст письма с удвоением точек в начале строк и завершающей точкой.
+     */
+    private void writeContent(Message message) throws IOException, MessagingException {
+        SMTPOutputStream content = new SMTPOutputStream(out);
+        if (message instanceof MimeMessage) {
+            ((MimeMessage) message).writeTo(content, IGNORED_HEADERS);
+        } else {
+            message.writeTo(content);
+        }
+        content.ensureAtBOL();
+        out.write(END_OF_DATA);
+        out.flush();
+    }
+
+    private static InternetAddress envelopeSender(Message message) throws MessagingException {
+        Address[] from = message.getFrom();
+        if (from == null || from.length == 0 || !(from[0] instanceof InternetAddress)) {
+            throw new MessagingException("Не указан адрес отправителя письма.");
+        }
+        return (InternetAddress) from[0];
+    }
+
+    private Reply exchange(String command) throws IOException {
+        writeCommand(command);
+        out.flush();
+        return readReply();
+    }
+
+    /**
+     * Отправляет команду с аргументом в кодировке Base64. Пустая команда передает только аргумент,
+     * как ответ на запрос сервера 334.
+     */
+    private Reply exchange(String command, byte[] argument) throws IOException {
+        byte[] encoded = Base64.getEncoder().encode(argument);
+        if (!command.isEmpty()) {
+            out.write(command.getBytes(StandardCharsets.US_ASCII));
+            out.write(' ');
+        }
+        out.write(encoded);
+        out.write(CRLF);
+        out.flush();
+        Arrays.fill(encoded, (byte) 0);
+        return readReply();
+    }
+
+    private void writeCommand(String command) throws IOException {
+        out.write(command.getBytes(StandardCharsets.UTF_8));
+        out.write(CRLF);
+    }
+
+    /**
+     * Читает ответ сервера, в том числе многострочный. Строки ответа объединяются через перевод строки.
+     */
+    private Reply readReply() throws IOException {
+        StringBuilder text = new StringBuilder();
+        String line;
+        do {
+            line = readLine();
+            if (line.length() < 3) {
+                throw new IOException("Некорректный ответ SMTP сервера:" + " " + line);
+            }
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(line);
+        } while (line.length() > 3 && line.charAt(3) == '-');
+        int code;
+        try {
+            code = Integer.parseInt(line.substring(0, 3));
+        } catch (NumberFormatException e) {
+            throw new IOException("Некорректный ответ SMTP сервера:" + " " + line, e);
+        }
+        if (code == 421) {
+            markBroken();
+        }
+        return new Reply(code, text.toString());
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("SMTP сервер закрыл соединение.");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private void markBroken() {
+        broken = true;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close SMTP socket: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] encode(char[] chars) {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars));
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        if (buffer.hasArray()) {
+            Arrays.fill(buffer.array(), (byte) 0);
+        }
+        return bytes;
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getCanonicalHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+
+    /**
+     * Ответ SMTP сервера: код и полный текст всех строк ответа.
+     */
+    private static final class Reply {
+        private final int code;
+        private final String text;
+
+        private Reply(int code, String text) {
+            this.code = code;
+            this.text = text;
+        }
+
+        private boolean isPositive() {
+            return code >= 200 && code < 300;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.appemail;
+
+/**
+ * Класс Recipient описывает получателя рассылки, прочитанного из файла адресов.
+ * Первый столбец файла содержит адрес, второй — имя, а дополнительные столбцы доступны
+ * по именам, заданным в строке заголовка файла.
+ */
+public class Recipient {
+
+    static final String[] DEFAULT_COLUMNS = {"email", "name"};
+
+    private final String[] columns;
+    private final String[] values;
+
+    /**
+     * Конструктор класса Recipient.
+     *
+     * @param email Адрес электронной почты получателя.
+     * @param name Имя получателя.
+     */
+    public Recipient(String email, String name) {
+        this(DEFAULT_COLUMNS, new String[]{email, name});
+    }
+
+    /**
+     * Конструктор класса Recipient с произвольным набором столбцов.
+     *
+     * @param columns Имена столбцов; первые два столбца — адрес и имя.
+     * @param values Значения столбцов в том же порядке.
+     */
+    public Recipient(String[] columns, String[] values) {
+        if (values.length < 2 || values.length > columns.length) {
+            throw new IllegalArgumentException("Неверное число столбцов получателя: " + values.length);
+        }
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * @return Адрес электронной почты получателя.
+     */
+    public String getEmail() {
+        return values[0];
+    }
+
+    /**
+     * @return Имя получателя.
+     */
+    public String getName() {
+        return values[1];
+    }
+
+    /**
+     * Возвращает значение столбца по имени.
+     *
+     * @param column Имя столбца.
+     * @return Значение столбца, пустая строка, если столбец не заполнен в строке получателя,
+     * или null, если такого столбца нет.
+     */
+    public String getField(String column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(column)) {
+                return i < values.length ? values[i] : "";
+            }
+        }
+        return null;
+    }
+}
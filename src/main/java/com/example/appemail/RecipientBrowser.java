@@ -0,0 +1,182 @@
+package com.example.appemail;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * Класс RecipientBrowser показывает файл адресов в отдельном окне в виде таблицы получателей
+ * с результатом проверки каждой строки. Таблица читает из файла только видимые строки
+ * ({@link PagedRecipientList}), поэтому окно открывается сразу и для очень больших файлов,
+ * а счетчики строк обновляются по мере просмотра файла в фоновом потоке.
+ * Строки можно отфильтровать по домену адреса.
+ */
+public class RecipientBrowser {
+
+    private static final Logger logger = LogManager.getLogger(RecipientBrowser.class);
+
+    static final Duration REFRESH_INTERVAL = Duration.millis(200);
+    static final Duration FILTER_DELAY = Duration.millis(300);
+    private static final double ROW_HEIGHT = 24;
+
+    private final Path path;
+    private final OutputSink output;
+    private final TableView<RecipientRow> table = new TableView<>();
+    private final TextField filterField = new TextField();
+    private final Label countsLabel = new Label();
+    private final Timeline refreshTimeline = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> refresh()));
+    private PagedRecipientSource source;
+    private PagedRecipientList rows;
+    private boolean countReported;
+
+    /**
+     * Конструктор класса RecipientBrowser.
+     *
+     * @param path Путь к файлу адресов.
+     * @param output Приемник, в который выводится число корректных адресов после просмотра файла.
+     */
+    public RecipientBrowser(Path path, OutputSink output) {
+        this.path = path;
+        this.output = output;
+        this.refreshTimeline.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /**
+     * Открывает окно с таблицей получателей и начинает просмотр файла.
+     * Должен вызываться в потоке JavaFX.
+     *
+     * @param owner Окно приложения, которому принадлежит окно таблицы.
+     */
+    public void show(Window owner) {
+        table.setFixedCellSize(ROW_HEIGHT);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        table.setPlaceholder(new Label("Нет строк для отображения"));
+        table.getColumns().add(column("Строка", row -> String.valueOf(row.getLineNumber()), 60));
+        table.getColumns().add(column("Адрес", RecipientRow::getEmail, 220));
+        table.getColumns().add(column("Имя", RecipientRow::getName, 140));
+        table.getColumns().add(column("Статус", RecipientRow::getStatus, 160));
+
+        filterField.setPromptText("Например, mail.ru");
+        PauseTransition filterDelay = new PauseTransition(FILTER_DELAY);
+        filterDelay.setOnFinished(e -> open(filterField.getText()));
+        filterField.textProperty().addListener((observable, oldValue, newValue) -> filterDelay.playFromStart());
+        HBox filterBox = new HBox(10, new Label("Фильтр по домену:"), filterField);
+        HBox.setHgrow(filterField, Priority.ALWAYS);
+
+        BorderPane root = new BorderPane(table, filterBox, null, countsLabel, null);
+        root.setPadding(new Insets(10));
+        BorderPane.setMargin(table, new Insets(10, 0, 10, 0));
+
+        Stage stage = new Stage();
+        stage.initOwner(owner);
+        stage.setTitle("Получатели:" + " " + path.getFileName());
+        stage.setScene(new Scene(root, 640, 480));
+        stage.setOnHidden(e -> {
+            refreshTimeline.stop();
+            closeSource();
+        });
+        open("");
+        stage.show();
+    }
+
+    /**
+     * Начинает просмотр файла с новым фильтром по домену, закрывая предыдущий источник строк.
+     *
+     * @param domainFilter Домен или пустая строка для всех строк.
+     */
+    private void open(String domainFilter) {
+        closeSource();
+        try {
+            source = PagedRecipientSource.open(path, domainFilter);
+        } catch (IOException e) {
+            source = null;
+            table.setItems(null);
+            countsLabel.setText("Ошибка чтения файла:" + " " + e.getMessage());
+            logger.error("Failed to open recipient file {}", path, e);
+            return;
+        }
+        rows = new PagedRecipientList(source, e -> {
+            countsLabel.setText("Ошибка чтения файла:" + " " + e.getMessage());
+            refreshTimeline.stop();
+        });
+        table.setItems(rows);
+        refreshTimeline.play();
+    }
+
+    /**
+     * Добавляет в таблицу новые проиндексированные строки и обновляет счетчики.
+     */
+    private void refresh() {
+        if (source == null) {
+            refreshTimeline.stop();
+            return;
+        }
+        rows.refresh();
+        if (source.getFailure() != null) {
+            countsLabel.setText("Ошибка чтения файла:" + " " + source.getFailure());
+            refreshTimeline.stop();
+            return;
+        }
+        int rowCount = source.getRowCount();
+        int validCount = source.getValidCount();
+        StringBuilder counts = new StringBuilder()
+                .append("Строк:").append(" ").append(rowCount)
+                .append(", ").append("корректных:").append(" ").append(validCount)
+                .append(", ").append("некорректных:").append(" ").append(rowCount - validCount);
+        if (!filterField.getText().isBlank()) {
+            counts.append(", ").append("в домене:").append(" ").append(source.getMatchedCount());
+        }
+        if (!source.isCompleted()) {
+            counts.append(" ").append(String.format("(просмотрено %d%%)", (int) (source.getProgress() * 100)));
+        }
+        countsLabel.setText(counts.toString());
+        if (source.isCompleted()) {
+            refreshTimeline.stop();
+            if (!countReported) {
+                countReported = true;
+                output.appendText("Количество валидных адресов электронной почты:" + " " + validCount + "\n");
+                logger.info("Displayed email information. Valid email addresses: {}", validCount);
+            }
+        }
+    }
+
+    private void closeSource() {
+        if (source == null) {
+            return;
+        }
+        try {
+            source.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close recipient file {}", path, e);
+        }
+        source = null;
+    }
+
+    private static TableColumn<RecipientRow, String> column(String title, Function<RecipientRow, String> value, double width) {
+        TableColumn<RecipientRow, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue() == null ? "" : value.apply(cell.getValue())));
+        column.setPrefWidth(width);
+        column.setSortable(false);
+        return column;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс RecipientDirectoryWatcher читает получателей из всех файлов каталога, включая файлы,
+ * появившиеся во время рассылки. Сначала файлы каталога читаются в порядке имен, затем
+ * каталог отслеживается через WatchService, и каждый новый файл читается, как только
+ * он не изменялся в течение {@link #SETTLE_MILLIS} миллисекунд. Скрытые файлы пропускаются.
+ * Каждый файл читается один раз. Поток получателей заканчивается, когда условие остановки выполнено.
+ */
+public class RecipientDirectoryWatcher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(RecipientDirectoryWatcher.class);
+
+    static final long SETTLE_MILLIS = 1000;
+    private static final long POLL_MILLIS = 200;
+
+    private final Path directory;
+    private final EmailReader emailReader;
+    private final OutputSink output;
+    private final BooleanSupplier stopped;
+    private final WatchService watchService;
+    private final Set<Path> seen = new HashSet<>();
+    private final Deque<Path> waiting = new ArrayDeque<>();
+    private Stream<Recipient> currentStream;
+
+    /**
+     * Начинает отслеживать каталог.
+     *
+     * @param directory Каталог с файлами адресов.
+     * @param emailReader Объект, читающий адреса из файла.
+     * @param output Приемник для вывода сообщений о прочитанных файлах и некорректных строках.
+     * @param stopped Условие остановки: когда оно выполнено, поток получателей заканчивается.
+     * @throws IOException Если каталог не удалось отслеживать.
+     */
+    public RecipientDirectoryWatcher(Path directory, EmailReader emailReader, OutputSink output, BooleanSupplier stopped)
+            throws IOException {
+        this.directory = directory;
+        this.emailReader = emailReader;
+        this.output = output;
+        this.stopped = stopped;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            files.forEach(existing::add);
+        }
+        existing.sort(null);
+        existing.forEach(this::enqueue);
+    }
+
+    /**
+     * Возвращает ленивый поток получателей из всех файлов каталога.
+     *
+     * @return Поток получателей.
+     */
+    public Stream<Recipient> recipients() {
+        Iterator<Recipient> iterator = new Iterator<Recipient>() {
+            private Iterator<Recipient> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    closeCurrent();
+                    current = Collections.emptyIterator();
+                    Path next = awaitNextFile();
+                    if (next == null) {
+                        return false;
+                    }
+                    current = open(next);
+                }
+                return true;
+            }
+
+            @Override
+            public Recipient next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Прекращает отслеживание каталога.
+     */
+    @Override
+    public void close() {
+        closeCurrent();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close the watch service for {}", directory, e);
+        }
+    }
+
+    /**
+     * Ожидает файл, готовый к чтению.
+     *
+     * @return Путь к файлу или null, если выполнено условие остановки.
+     */
+    private Path awaitNextFile() {
+        while (!stopped.getAsBoolean()) {
+            Path ready = pollSettled();
+            if (ready != null) {
+                return ready;
+            }
+            try {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            rescan();
+                        } else {
+                            enqueue(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ClosedWatchServiceException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Возвращает первый ожидающий файл, который не менялся в течение {@link #SETTLE_MILLIS} миллисекунд.
+     *
+     * @return Путь к файлу или null, если таких файлов нет.
+     */
+    private Path pollSettled() {
+        for (Iterator<Path> iterator = waiting.iterator(); iterator.hasNext(); ) {
+            Path path = iterator.next();
+            try {
+                long age = System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis();
+                if (age >= SETTLE_MILLIS) {
+                    iterator.remove();
+                    return path;
+                }
+            } catch (IOException e) {
+                iterator.remove();
+                logger.warn("Recipient file {} disappeared before it was read", path);
+            }
+        }
+        return null;
+    }
+
+    private void enqueue(Path path) {
+        if (Files.isRegularFile(path) && !path.getFileName().toString().startsWith(".") && seen.add(path)) {
+            waiting.add(path);
+        }
+    }
+
+    private void rescan() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            files.forEach(this::enqueue);
+        } catch (IOException e) {
+            logger.warn("Failed to rescan {}", directory, e);
+        }
+    }
+
+    private Iterator<Recipient> open(Path path) {
+        logger.info("Reading recipients from {}", path);
+        output.appendText("Чтение адресов из файла:" + " " + path.getFileName() + "\n");
+        try {
+            currentStream = emailReader.streamRecipients(path.toString(), output);
+            return currentStream.iterator();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeCurrent() {
+        if (currentStream != null) {
+            currentStream.close();
+            currentStream = null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.appemail;
+
+/**
+ * Класс RecipientLineTokenizer разбирает строки файла адресов вида {@code адрес, имя[, поле...]}.
+ * Имена дополнительных столбцов задаются необязательной первой строкой заголовка,
+ * начинающейся с символа {@code #}.
+ * Разбор выполняется по смещениям внутри CharSequence без split и trim, а строки создаются
+ * только для полей принятого получателя и для текста сообщений об ошибках.
+ */
+public final class RecipientLineTokenizer {
+
+    static final String HEADER_PREFIX = "#";
+
+    private RecipientLineTokenizer() {
+    }
+
+    /**
+     * Разбирает строку заголовка файла адресов вида {@code #email, name, company}.
+     *
+     * @param line Первая строка файла.
+     * @return Имена столбцов или null, если строка не является заголовком.
+     */
+    public static String[] parseHeader(String line) {
+        if (line == null || !line.startsWith(HEADER_PREFIX)) {
+            return null;
+        }
+        String[] columns = line.substring(HEADER_PREFIX.length()).split(",");
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columns[i].trim();
+        }
+        return columns.length >= 2 ? columns : null;
+    }
+
+    /**
+     * Разбирает строку файла адресов из двух столбцов: адреса и имени.
+     *
+     * @param text Последовательность символов, содержащая строку.
+     * @param start Индекс первого символа строки.
+     * @param end Индекс, следующий за последним символом строки (без символа перевода строки).
+     * @param output Приемник для вывода информации о некорректной строке.
+     * @return Получатель, описанный строкой, или null, если строка некорректна.
+     */
+    public static Recipient parse(CharSequence text, int start, int end, OutputSink output) {
+        return parse(text, start, end, Recipient.DEFAULT_COLUMNS, output);
+    }
+
+    /**
+     * Разбирает строку файла адресов. Первые два столбца (адрес и имя) обязательны,
+     * последний столбец включает в себя остаток строки, а отсутствующие дополнительные столбцы
+     * считаются незаполненными.
+     *
+     * @param text Последовательность символов, содержащая строку.
+     * @param start Индекс первого символа строки.
+     * @param end Индекс, следующий за последним символом строки (без символа перевода строки).
+     * @param columns Имена столбцов файла.
+     * @param output Приемник для вывода информации о некорректной строке.
+     * @return Получатель, описанный строкой, или null, если строка некорректна.
+     */
+    public static Recipient parse(CharSequence text, int start, int end, String[] columns, OutputSink output) {
+        int[] bounds = new int[columns.length * 2];
+        int firstComma = indexOf(text, ',', start, end);
+        int fieldCount = 0;
+        int fieldStart = start;
+        int fieldEnd = firstComma;
+        while (fieldEnd >= 0) {
+            int valueStart = skipLeadingSpaces(text, fieldStart, fieldEnd);
+            bounds[fieldCount * 2] = valueStart;
+            bounds[fieldCount * 2 + 1] = skipTrailingSpaces(text, valueStart, fieldEnd);
+            fieldCount++;
+            if (fieldEnd == end || fieldCount == columns.length) {
+                break;
+            }
+            fieldStart = fieldEnd + 1;
+            if (fieldCount == columns.length - 1) {
+                fieldEnd = end;
+            } else {
+                int comma = indexOf(text, ',', fieldStart, end);
+                fieldEnd = comma < 0 ? end : comma;
+            }
+        }
+        if (fieldCount < 2 || bounds[0] == bounds[1] || bounds[2] == bounds[3]) {
+            output.appendText("Неверный формат строки:" + " " + text.subSequence(start, end) + "\n");
+            return null;
+        }
+        if (!EmailAddressValidator.isValid(text, bounds[0], bounds[1])) {
+            output.appendText("Неверный формат адреса электронной почты:" + " " + text.subSequence(start, firstComma) + "\n");
+            return null;
+        }
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = text.subSequence(bounds[i * 2], bounds[i * 2 + 1]).toString();
+        }
+        return new Recipient(columns, values);
+    }
+
+    /**
+     * Проверяет, содержит ли строка файла адресов корректный адрес в первом поле.
+     * Наличие имени при этом не проверяется.
+     *
+     * @param text Последовательность символов, содержащая строку.
+     * @param start Индекс первого символа строки.
+     * @param end Индекс, следующий за последним символом строки.
+     * @return true, если первое поле строки является корректным адресом, иначе false.
+     */
+    public static boolean hasValidAddress(CharSequence text, int start, int end) {
+        int comma = indexOf(text, ',', start, end);
+        int fieldEnd = comma < 0 ? end : comma;
+        int emailStart = skipLeadingSpaces(text, start, fieldEnd);
+        int emailEnd = skipTrailingSpaces(text, emailStart, fieldEnd);
+        return EmailAddressValidator.isValid(text, emailStart, emailEnd);
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipLeadingSpaces(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailingSpaces(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
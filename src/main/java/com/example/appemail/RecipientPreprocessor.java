@@ -0,0 +1,130 @@
+package com.example.appemail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Класс RecipientPreprocessor подготавливает поток получателей к отправке.
+ * Повторяющиеся адреса отбрасываются: адрес нормализуется (пробелы по краям, регистр латинских букв)
+ * и сравнивается по 64-битному отпечатку ({@link AddressFingerprint}) в множестве {@link LongHashSet},
+ * которое занимает около 16 байт на адрес вне зависимости от длины адресов.
+ * Затем получатели группируются по домену в пределах окна из {@link #DEFAULT_WINDOW_SIZE} получателей,
+ * чтобы письма на один домен шли подряд. Окно ограничивает расход памяти, поэтому список
+ * любой длины по-прежнему обрабатывается потоково. Экземпляр рассчитан на один поток получателей.
+ * Группа писем на один домен не занимает все рабочие потоки ожиданием ограничения частоты на домен:
+ * {@link BulkEmailDispatcher} откладывает письма, для домена которых разрешение еще не наступило,
+ * и тем временем отправляет письма на другие домены окна.
+ */
+public class RecipientPreprocessor {
+
+    static final int DEFAULT_WINDOW_SIZE = 1000;
+
+    private final int windowSize;
+    private final LongHashSet seen = new LongHashSet();
+    private int duplicateCount;
+
+    /**
+     * Создает обработчик с окном группировки по умолчанию.
+     */
+    public RecipientPreprocessor() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Конструктор класса RecipientPreprocessor.
+     *
+     * @param windowSize Число получателей, в пределах которого письма группируются по домену.
+     *                   Значение 1 отключает группировку.
+     */
+    public RecipientPreprocessor(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Размер окна группировки должен быть положительным.");
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Возвращает ленивый поток получателей без повторяющихся адресов, сгруппированных по домену.
+     * Закрытие возвращенного потока закрывает исходный.
+     *
+     * @param recipients Исходный поток получателей.
+     * @return Подготовленный поток получателей.
+     */
+    public Stream<Recipient> prepare(Stream<Recipient> recipients) {
+        Stream<Recipient> unique = recipients.filter(this::isFirstOccurrence);
+        if (windowSize == 1) {
+            return unique;
+        }
+        Iterator<Recipient> grouped = new DomainGroupingIterator(unique.iterator(), windowSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(grouped, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(recipients::close);
+    }
+
+    /**
+     * @return Число отброшенных повторяющихся адресов.
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    private boolean isFirstOccurrence(Recipient recipient) {
+        if (seen.add(AddressFingerprint.of(recipient.getEmail()))) {
+            return true;
+        }
+        duplicateCount++;
+        return false;
+    }
+
+    /**
+     * Итератор, который читает из исходного итератора окно получателей и выдает его,
+     * упорядочив по домену: домены идут в порядке первого появления в окне,
+     * а получатели одного домена — в исходном порядке.
+     */
+    private static class DomainGroupingIterator implements Iterator<Recipient> {
+        private final Iterator<Recipient> source;
+        private final int windowSize;
+        private final Deque<Recipient> ready = new ArrayDeque<>();
+
+        DomainGroupingIterator(Iterator<Recipient> source, int windowSize) {
+            this.source = source;
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ready.isEmpty()) {
+                fillWindow();
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public Recipient next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.poll();
+        }
+
+        private void fillWindow() {
+            Map<String, List<Recipient>> byDomain = new LinkedHashMap<>();
+            for (int i = 0; i < windowSize && source.hasNext(); i++) {
+                Recipient recipient = source.next();
+                byDomain.computeIfAbsent(SendRateLimiter.domainOf(recipient.getEmail()), domain -> new ArrayList<>()).add(recipient);
+            }
+            for (List<Recipient> group : byDomain.values()) {
+                ready.addAll(group);
+            }
+        }
+    }
+}
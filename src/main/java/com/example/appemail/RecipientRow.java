@@ -0,0 +1,95 @@
+package com.example.appemail;
+
+import java.util.Locale;
+
+/**
+ * Класс RecipientRow описывает строку файла адресов для просмотра в таблице получателей:
+ * номер строки в файле, адрес, имя и результат проверки строки. В отличие от {@link Recipient},
+ * строка создается и для некорректных записей, в том числе пустых строк, чтобы их можно было найти в файле.
+ * Результат проверки совпадает с сообщением, которое выводится для строки при рассылке.
+ */
+public class RecipientRow {
+
+    static final String STATUS_VALID = "Корректный";
+    static final String STATUS_INVALID_ADDRESS = "Неверный адрес";
+    static final String STATUS_INVALID_FORMAT = "Неверный формат строки";
+
+    private static final OutputSink IGNORED_OUTPUT = text -> { };
+
+    private final int lineNumber;
+    private final String email;
+    private final String name;
+    private final String domain;
+    private final String status;
+
+    private RecipientRow(int lineNumber, String email, String name, String status) {
+        this.lineNumber = lineNumber;
+        this.email = email;
+        this.name = name;
+        this.domain = email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+        this.status = status;
+    }
+
+    /**
+     * Разбирает строку файла адресов.
+     *
+     * @param lineNumber Номер строки в файле, начиная с 1.
+     * @param line Текст строки без символа перевода строки.
+     * @param columns Имена столбцов файла.
+     * @return Строка таблицы получателей.
+     */
+    public static RecipientRow parse(int lineNumber, String line, String[] columns) {
+        Recipient recipient = RecipientLineTokenizer.parse(line, 0, line.length(), columns, IGNORED_OUTPUT);
+        if (recipient != null) {
+            return new RecipientRow(lineNumber, recipient.getEmail(), recipient.getName(), STATUS_VALID);
+        }
+        int comma = line.indexOf(',');
+        String email = (comma < 0 ? line : line.substring(0, comma)).trim();
+        String name = comma < 0 ? "" : line.substring(comma + 1).trim();
+        String status = line.isBlank() || RecipientLineTokenizer.hasValidAddress(line, 0, line.length())
+                ? STATUS_INVALID_FORMAT : STATUS_INVALID_ADDRESS;
+        return new RecipientRow(lineNumber, email, name, status);
+    }
+
+    /**
+     * @return Номер строки в файле, начиная с 1.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return Адрес электронной почты.
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * @return Имя получателя.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Домен адреса в нижнем регистре.
+     */
+    public String getDomain() {
+        return domain;
+    }
+
+    /**
+     * @return Результат проверки строки.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true, если строка описывает корректного получателя, которому будет отправлено письмо.
+     */
+    public boolean isValid() {
+        return STATUS_VALID.equals(status);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.appemail;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Класс RetryPolicy определяет, сколько раз и с какими паузами повторять отправку письма
+ * после временной ошибки. Пауза растет экспоненциально с номером попытки и случайно
+ * сокращается до половины (equal jitter), чтобы повторы многих писем не приходили
+ * на сервер одновременно. При ограничении частоты отправки пауза не меньше
+ * {@link #getThrottledDelayMillis()}.
+ */
+public class RetryPolicy {
+
+    static final int DEFAULT_MAX_ATTEMPTS = 4;
+    static final long DEFAULT_BASE_DELAY_MILLIS = 2_000;
+    static final long DEFAULT_MAX_DELAY_MILLIS = 120_000;
+    static final long DEFAULT_THROTTLED_DELAY_MILLIS = 30_000;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long throttledDelayMillis;
+
+    /**
+     * Создает политику повторов с параметрами по умолчанию.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_THROTTLED_DELAY_MILLIS);
+    }
+
+    /**
+     * Конструктор класса RetryPolicy.
+     *
+     * @param maxAttempts Максимальное число попыток отправки, включая первую.
+     * @param baseDelayMillis Пауза перед первым повтором в миллисекундах.
+     * @param maxDelayMillis Максимальная пауза между попытками в миллисекундах.
+     * @param throttledDelayMillis Минимальная пауза после ответа об ограничении частоты отправки.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long throttledDelayMillis) {
+        if (maxAttempts < 1 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis || throttledDelayMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры повторной отправки.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.throttledDelayMillis = throttledDelayMillis;
+    }
+
+    /**
+     * Проверяет, нужно ли повторить отправку.
+     *
+     * @param attempt Номер неудачной попытки, начиная с 1.
+     * @param failureType Тип ошибки.
+     * @return true, если отправку следует повторить.
+     */
+    public boolean shouldRetry(int attempt, SmtpFailureType failureType) {
+        return failureType.isRetryable() && attempt < maxAttempts;
+    }
+
+    /**
+     * Вычисляет паузу перед следующей попыткой.
+     *
+     * @param attempt Номер неудачной попытки, начиная с 1.
+     * @param failureType Тип ошибки.
+     * @return Пауза в миллисекундах.
+     */
+    public long delayMillis(int attempt, SmtpFailureType failureType) {
+        int shift = Math.min(attempt - 1, 30);
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        if (failureType == SmtpFailureType.THROTTLED) {
+            ceiling = Math.max(ceiling, throttledDelayMillis);
+        }
+        long half = ceiling / 2;
+        long jittered = half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+        // Разброс не должен опускать паузу ниже минимальной паузы после ответа об ограничении частоты.
+        return failureType == SmtpFailureType.THROTTLED ? Math.max(jittered, throttledDelayMillis) : jittered;
+    }
+
+    /**
+     * @return Максимальное число попыток отправки, включая первую.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return Минимальная пауза после ответа об ограничении частоты отправки.
+     */
+    public long getThrottledDelayMillis() {
+        return throttledDelayMillis;
+    }
+}
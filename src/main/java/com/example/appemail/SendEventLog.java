@@ -0,0 +1,60 @@
+package com.example.appemail;
+
+import javax.mail.MessagingException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс SendEventLog записывает структурированные события отправки писем — по одной строке
+ * на каждую попытку отправки. Поля строки разделены табуляцией:
+ * {@code отпечаток_адреса учетная_запись попытка задержка_мкс код_ответа результат}.
+ * Вместо адреса записывается его отпечаток (см. {@link AddressFingerprint}), поэтому журнал
+ * событий не содержит персональных данных и пригоден для последующего анализа.
+ * События пишутся отдельным асинхронным логгером (см. log4j2.xml) и не задерживают рассылку.
+ */
+public final class SendEventLog {
+
+    private static final Logger logger = LogManager.getLogger(SendEventLog.class);
+
+    static final int REPLY_CODE_OK = 250;
+    static final String OUTCOME_SENT = "SENT";
+
+    private SendEventLog() {
+    }
+
+    /**
+     * Записывает событие успешной отправки.
+     *
+     * @param recipient Адрес получателя.
+     * @param account Учетная запись отправителя.
+     * @param attempt Номер попытки, начиная с 1.
+     * @param latencyNanos Длительность отправки в наносекундах.
+     */
+    public static void sent(String recipient, String account, int attempt, long latencyNanos) {
+        if (logger.isInfoEnabled()) {
+            write(recipient, account, attempt, latencyNanos, REPLY_CODE_OK, OUTCOME_SENT);
+        }
+    }
+
+    /**
+     * Записывает событие неудачной отправки. Результатом события служит тип ошибки.
+     *
+     * @param recipient Адрес получателя.
+     * @param account Учетная запись отправителя.
+     * @param attempt Номер попытки, начиная с 1.
+     * @param latencyNanos Длительность отправки в наносекундах.
+     * @param error Исключение, возникшее при отправке.
+     */
+    public static void failed(String recipient, String account, int attempt, long latencyNanos, MessagingException error) {
+        if (logger.isInfoEnabled()) {
+            write(recipient, account, attempt, latencyNanos, SmtpErrorClassifier.replyCode(error),
+                    SmtpErrorClassifier.classify(error).name());
+        }
+    }
+
+    private static void write(String recipient, String account, int attempt, long latencyNanos, int replyCode, String outcome) {
+        logger.info("{}\t{}\t{}\t{}\t{}\t{}", Long.toHexString(AddressFingerprint.of(recipient)), account, attempt,
+                latencyNanos / 1000, replyCode, outcome);
+    }
+}
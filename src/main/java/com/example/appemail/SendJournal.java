@@ -0,0 +1,291 @@
+package com.example.appemail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс SendJournal ведет журнал отправки писем, позволяющий продолжить прерванную рассылку
+ * без повторной отправки. Журнал — это файл, в конец которого дописываются строки вида
+ * {@code идентификатор_рассылки TAB статус TAB адрес}. Записи накапливаются в буфере и
+ * сбрасываются на диск с fsync фоновым потоком раз в {@link #FLUSH_INTERVAL_MILLIS} миллисекунд,
+ * поэтому запись в журнал не задерживает рабочие потоки рассылки и не прерывается вместе с ними.
+ * При открытии журнала
+ * адреса, успешно получившие письмо в рамках рассылки, загружаются в компактный индекс отпечатков,
+ * а оборванная при сбое последняя строка отбрасывается. Открытый журнал заблокирован для других
+ * рассылок, а записи дописываются в конец файла.
+ */
+public class SendJournal implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(SendJournal.class);
+
+    static final Path DEFAULT_PATH = Paths.get("journal", "send-journal.log");
+    static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte STATUS_SENT = 'S';
+    private static final byte STATUS_FAILED = 'F';
+
+    private final FileChannel channel;
+    private final byte[] campaignPrefix;
+    private final LongHashSet completed;
+    private final Object bufferLock = new Object();
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ScheduledExecutorService flusher;
+    private boolean closed;
+
+    private SendJournal(FileChannel channel, byte[] campaignPrefix, LongHashSet completed) {
+        this.channel = channel;
+        this.campaignPrefix = campaignPrefix;
+        this.completed = completed;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "send-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Открывает журнал и загружает адреса, которым письмо рассылки уже было отправлено.
+     *
+     * @param path Путь к файлу журнала. Файл и каталог создаются при необходимости.
+     * @param campaignId Идентификатор рассылки.
+     * @return Открытый журнал.
+     * @throws IOException Если журнал не удалось прочитать, открыть для записи или он уже используется
+     *                     другой рассылкой.
+     */
+    public static SendJournal open(Path path, String campaignId) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        byte[] campaignPrefix = (campaignId + "\t").getBytes(StandardCharsets.UTF_8);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            lock(channel, path);
+            LongHashSet completed = new LongHashSet();
+            long validLength;
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                validLength = load(reader, campaignPrefix, completed);
+            }
+            if (validLength < channel.size()) {
+                logger.warn("Discarding {} bytes of an incomplete journal record in {}", channel.size() - validLength, path);
+                channel.truncate(validLength);
+            }
+            logger.info("Send journal {} opened. Completed recipients for campaign {}: {}", path, campaignId, completed.size());
+            return new SendJournal(channel, campaignPrefix, completed);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Захватывает исключительную блокировку файла журнала, чтобы две рассылки, запущенные в одном
+     * или разных процессах, не дописывали журнал одновременно. Блокировка снимается при закрытии канала.
+     *
+     * @param channel Канал, открытый для записи в журнал.
+     * @param path Путь к файлу журнала.
+     * @throws IOException Если журнал уже используется другой рассылкой.
+     */
+    private static void lock(FileChannel channel, Path path) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("Журнал отправки уже используется другой рассылкой:" + " " + path);
+        }
+    }
+
+    /**
+     * Вычисляет идентификатор рассылки по теме и тексту письма, чтобы повторный запуск той же
+     * рассылки продолжал ее, а новая рассылка начиналась заново.
+     *
+     * @param subject Тема письма.
+     * @param letterContent Текст шаблона письма.
+     * @return Идентификатор рассылки.
+     */
+    public static String campaignId(String subject, String letterContent) {
+        return Long.toHexString(AddressFingerprint.ofText(subject + '\0' + letterContent));
+    }
+
+    /**
+     * Проверяет, было ли письмо рассылки успешно отправлено на адрес при предыдущих запусках.
+     *
+     * @param address Адрес электронной почты.
+     * @return true, если письмо уже было отправлено, иначе false.
+     */
+    public boolean isCompleted(String address) {
+        return completed.contains(AddressFingerprint.of(address));
+    }
+
+    /**
+     * @return Число адресов, которым письмо рассылки было отправлено при предыдущих запусках.
+     */
+    public int getCompletedCount() {
+        return completed.size();
+    }
+
+    /**
+     * Добавляет в журнал результат отправки. Метод можно вызывать из любых потоков;
+     * запись только помещается в буфер и не выполняет операций ввода-вывода.
+     *
+     * @param result Результат отправки.
+     * @throws IllegalStateException Если журнал уже закрыт и запись не попала бы на диск.
+     */
+    public void record(SendResult result) {
+        byte[] address = result.getRecipient().getBytes(StandardCharsets.UTF_8);
+        int length = campaignPrefix.length + address.length + 3;
+        synchronized (bufferLock) {
+            if (closed) {
+                throw new IllegalStateException("Журнал отправки закрыт.");
+            }
+            if (buffer.remaining() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            buffer.put(campaignPrefix)
+                    .put(result.isSuccessful() ? STATUS_SENT : STATUS_FAILED)
+                    .put((byte) '\t')
+                    .put(address)
+                    .put((byte) '\n');
+        }
+    }
+
+    /**
+     * Записывает накопленные записи на диск и дожидается их сохранения.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    public void flush() throws IOException {
+        synchronized (bufferLock) {
+            writeBuffer();
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Сохраняет все записи и закрывает журнал.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    @Override
+    public void close() throws IOException {
+        // Прерывание потока во время операции FileChannel закрывает канал,
+        // поэтому флаг прерывания снимается до окончательной записи и восстанавливается после нее.
+        boolean interrupted = Thread.interrupted();
+        synchronized (bufferLock) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(FLUSH_INTERVAL_MILLIS * 10, TimeUnit.MILLISECONDS);
+            flush();
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            channel.close();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Записывает содержимое буфера в файл. Вызывается под блокировкой буфера.
+     * Буфер, выросший при пиковой нагрузке, возвращается к исходному размеру.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.compact();
+        }
+        if (buffer.capacity() > BUFFER_SIZE && buffer.position() == 0) {
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.error("Failed to flush the send journal", e);
+        }
+    }
+
+    /**
+     * Читает журнал и добавляет в индекс отпечатки адресов, успешно получивших письмо рассылки.
+     *
+     * @param channel Канал файла журнала.
+     * @param campaignPrefix Идентификатор рассылки с разделителем в кодировке UTF-8.
+     * @param completed Индекс, в который добавляются отпечатки.
+     * @return Длина журнала до конца последней полной записи.
+     * @throws IOException Если журнал не удалось прочитать.
+     */
+    private static long load(FileChannel channel, byte[] campaignPrefix, LongHashSet completed) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long position = 0;
+        long validLength = 0;
+        while (channel.read(chunk, position) > 0) {
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                byte b = chunk.get();
+                position++;
+                if (b != '\n') {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                    continue;
+                }
+                validLength = position;
+                if (isSentRecord(line, lineLength, campaignPrefix)) {
+                    int addressStart = campaignPrefix.length + 2;
+                    completed.add(AddressFingerprint.of(new String(line, addressStart, lineLength - addressStart, StandardCharsets.UTF_8)));
+                }
+                lineLength = 0;
+            }
+            chunk.clear();
+        }
+        return validLength;
+    }
+
+    private static boolean isSentRecord(byte[] line, int lineLength, byte[] campaignPrefix) {
+        if (lineLength < campaignPrefix.length + 2 || line[campaignPrefix.length] != STATUS_SENT
+                || line[campaignPrefix.length + 1] != '\t') {
+            return false;
+        }
+        for (int i = 0; i < campaignPrefix.length; i++) {
+            if (line[i] != campaignPrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.appemail;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс SendMetrics собирает показатели отправки писем: гистограммы задержек по фазам,
+ * счетчики отправленных и неотправленных писем, ошибки по кодам ответа SMTP сервера и глубину очереди.
+ * Показатели общие для всего процесса, доступны через JMX и сбрасываются в начале каждой рассылки.
+ * Фазы отправки:
+ * <ul>
+ *     <li>{@code connect} — открытие соединения: TCP, приветствие, EHLO, STARTTLS и AUTH;</li>
+ *     <li>{@code data} — передача письма через открытое соединение: MAIL FROM, RCPT TO и DATA;</li>
+ *     <li>{@code send} — отправка письма целиком, включая ожидание свободного соединения.</li>
+ * </ul>
+ * Все счетчики основаны на {@link LongAdder} и не создают конкуренции между рабочими потоками.
+ */
+public class SendMetrics implements SendMetricsMXBean {
+
+    private static final Logger logger = LogManager.getLogger(SendMetrics.class);
+
+    static final String OBJECT_NAME = "com.example.appemail:type=SendMetrics";
+    private static final String UNKNOWN_REPLY_CODE = "unknown";
+    private static final double[] SUMMARY_PERCENTILES = {50, 90, 99, 99.9};
+    private static final SendMetrics INSTANCE = new SendMetrics();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Failed to register send metrics in JMX: {}", e.getMessage());
+        }
+    }
+
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram dataLatency = new LatencyHistogram();
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final Map<Integer, LongAdder> failuresByReplyCode = new ConcurrentHashMap<>();
+    private volatile IntSupplier queueDepth = () -> 0;
+    private volatile long startNanos = System.nanoTime();
+
+    private SendMetrics() {
+    }
+
+    /**
+     * @return Показатели отправки писем процесса.
+     */
+    public static SendMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Записывает длительность открытия соединения.
+     *
+     * @param nanos Длительность в наносекундах.
+     */
+    public void recordConnect(long nanos) {
+        connectLatency.record(nanos);
+    }
+
+    /**
+     * Записывает длительность передачи письма через открытое соединение.
+     *
+     * @param nanos Длительность в наносекундах.
+     */
+    public void recordData(long nanos) {
+        dataLatency.record(nanos);
+    }
+
+    /**
+     * Записывает длительность отправки письма целиком.
+     *
+     * @param nanos Длительность в наносекундах.
+     */
+    public void recordSend(long nanos) {
+        sendLatency.record(nanos);
+    }
+
+    /**
+     * Учитывает неудачную попытку отправки по коду ответа сервера.
+     *
+     * @param replyCode Код ответа SMTP сервера или -1, если он неизвестен.
+     */
+    public void recordFailedAttempt(int replyCode) {
+        failedAttempts.increment();
+        failuresByReplyCode.computeIfAbsent(replyCode, code -> new LongAdder()).increment();
+    }
+
+    /**
+     * Учитывает окончательный результат отправки письма получателю.
+     *
+     * @param result Результат отправки.
+     */
+    public void recordResult(SendResult result) {
+        if (result.isSuccessful()) {
+            sentCount.increment();
+        } else {
+            failedCount.increment();
+        }
+    }
+
+    /**
+     * Задает источник глубины очереди отправки.
+     *
+     * @param queueDepth Функция, возвращающая текущее число писем в очереди.
+     */
+    public void setQueueDepthGauge(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    @Override
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    @Override
+    public double getMessagesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0 : sentCount.sum() / seconds;
+    }
+
+    @Override
+    public double getErrorRate() {
+        long failed = failedAttempts.sum();
+        long attempts = failed + sentCount.sum();
+        return attempts == 0 ? 0 : (double) failed / attempts;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public Map<String, Long> getFailuresByReplyCode() {
+        Map<String, Long> failures = new TreeMap<>();
+        failuresByReplyCode.forEach((code, count) -> failures.put(code < 0 ? UNKNOWN_REPLY_CODE : String.valueOf(code), count.sum()));
+        return failures;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyPercentilesMicros() {
+        Map<String, Long> percentiles = new TreeMap<>();
+        addPercentiles(percentiles, "connect", connectLatency);
+        addPercentiles(percentiles, "data", dataLatency);
+        addPercentiles(percentiles, "send", sendLatency);
+        return percentiles;
+    }
+
+    @Override
+    public void reset() {
+        connectLatency.reset();
+        dataLatency.reset();
+        sendLatency.reset();
+        sentCount.reset();
+        failedCount.reset();
+        failedAttempts.reset();
+        failuresByReplyCode.clear();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Формирует текстовую сводку показателей для журнала в конце рассылки.
+     *
+     * @return Многострочная сводка.
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "sent=%d failed=%d rate=%.1f msg/s errorRate=%.2f%%",
+                getSentCount(), getFailedCount(), getMessagesPerSecond(), getErrorRate() * 100));
+        appendLatency(summary, "connect", connectLatency);
+        appendLatency(summary, "data", dataLatency);
+        appendLatency(summary, "send", sendLatency);
+        Map<String, Long> failures = getFailuresByReplyCode();
+        if (!failures.isEmpty()) {
+            summary.append(System.lineSeparator()).append("  failures by reply code: ").append(failures);
+        }
+        return summary.toString();
+    }
+
+    private static void addPercentiles(Map<String, Long> percentiles, String phase, LatencyHistogram histogram) {
+        for (double percentile : SUMMARY_PERCENTILES) {
+            percentiles.put(phase + ".p" + formatPercentile(percentile), histogram.getPercentileMicros(percentile));
+        }
+        percentiles.put(phase + ".max", histogram.getMaxMicros());
+    }
+
+    private static void appendLatency(StringBuilder summary, String phase, LatencyHistogram histogram) {
+        summary.append(System.lineSeparator()).append(String.format(Locale.ROOT, "  %-7s n=%d mean=%dus", phase,
+                histogram.getCount(), histogram.getMeanMicros()));
+        for (double percentile : SUMMARY_PERCENTILES) {
+            summary.append(" p").append(formatPercentile(percentile)).append('=').append(histogram.getPercentileMicros(percentile)).append("us");
+        }
+        summary.append(" max=").append(histogram.getMaxMicros()).append("us");
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.appemail;
+
+import java.util.Map;
+
+/**
+ * Интерфейс SendMetricsMXBean описывает показатели рассылки, доступные через JMX
+ * под именем {@value SendMetrics#OBJECT_NAME}.
+ */
+public interface SendMetricsMXBean {
+
+    /**
+     * @return Число успешно отправленных писем с начала рассылки.
+     */
+    long getSentCount();
+
+    /**
+     * @return Число писем, которые не удалось отправить, с начала рассылки.
+     */
+    long getFailedCount();
+
+    /**
+     * @return Средняя скорость отправки в письмах в секунду с начала рассылки.
+     */
+    double getMessagesPerSecond();
+
+    /**
+     * @return Доля неудачных попыток отправки среди всех попыток.
+     */
+    double getErrorRate();
+
+    /**
+     * @return Число писем, принятых к отправке, но еще не отправленных.
+     */
+    int getQueueDepth();
+
+    /**
+     * @return Число неудачных попыток отправки по кодам ответа SMTP сервера; "unknown", если кода нет.
+     */
+    Map<String, Long> getFailuresByReplyCode();
+
+    /**
+     * @return Процентили задержек по фазам отправки в микросекундах, например "connect.p99".
+     */
+    Map<String, Long> getLatencyPercentilesMicros();
+
+    /**
+     * Сбрасывает все показатели.
+     */
+    void reset();
+}
@@ -0,0 +1,154 @@
+package com.example.appemail;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс SendRateLimiter ограничивает частоту отправки писем, чтобы не превысить квоты почтового сервиса.
+ * Для каждой учетной записи отправителя и для каждого домена получателей ведется своя корзина маркеров
+ * ({@link TokenBucket}) с заданными устойчивой скоростью и всплеском. Скорость учетной записи подстраивается
+ * под ответы сервера: при ответе об ограничении частоты она уменьшается вдвое, а после каждой успешной
+ * отправки постепенно возвращается к настроенной.
+ * Параметры задаются системными свойствами {@code appemail.rate.account}, {@code appemail.burst.account},
+ * {@code appemail.rate.domain} и {@code appemail.burst.domain}.
+ */
+public class SendRateLimiter {
+
+    private static final Logger logger = LogManager.getLogger(SendRateLimiter.class);
+
+    static final double DEFAULT_ACCOUNT_RATE = 5.0;
+    static final int DEFAULT_ACCOUNT_BURST = 20;
+    static final double DEFAULT_DOMAIN_RATE = 10.0;
+    static final int DEFAULT_DOMAIN_BURST = 20;
+    private static final double SLOW_DOWN_FACTOR = 0.5;
+    private static final double MIN_RATE_FRACTION = 0.05;
+    private static final double RECOVERY_STEPS = 50;
+
+    private final double accountRate;
+    private final int accountBurst;
+    private final double domainRate;
+    private final int domainBurst;
+    private final ConcurrentMap<String, TokenBucket> accountBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> domainBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор класса SendRateLimiter.
+     *
+     * @param accountRate Устойчивая скорость отправки с одной учетной записи, писем в секунду.
+     * @param accountBurst Допустимый всплеск отправки с одной учетной записи.
+     * @param domainRate Устойчивая скорость отправки на один домен получателей, писем в секунду.
+     * @param domainBurst Допустимый всплеск отправки на один домен получателей.
+     */
+    public SendRateLimiter(double accountRate, int accountBurst, double domainRate, int domainBurst) {
+        if (accountRate <= 0 || accountBurst < 1 || domainRate <= 0 || domainBurst < 1) {
+            throw new IllegalArgumentException("Параметры ограничения частоты отправки должны быть положительными.");
+        }
+        this.accountRate = accountRate;
+        this.accountBurst = accountBurst;
+        this.domainRate = domainRate;
+        this.domainBurst = domainBurst;
+    }
+
+    /**
+     * Создает ограничитель с параметрами из системных свойств или значениями по умолчанию.
+     *
+     * @return Ограничитель частоты отправки.
+     */
+    public static SendRateLimiter fromSystemProperties() {
+        return new SendRateLimiter(
+                doubleProperty("appemail.rate.account", DEFAULT_ACCOUNT_RATE),
+                (int) doubleProperty("appemail.burst.account", DEFAULT_ACCOUNT_BURST),
+                doubleProperty("appemail.rate.domain", DEFAULT_DOMAIN_RATE),
+                (int) doubleProperty("appemail.burst.domain", DEFAULT_DOMAIN_BURST));
+    }
+
+    /**
+     * Ожидает разрешения на отправку письма с учетной записи на адрес получателя.
+     *
+     * @param account Учетная запись отправителя.
+     * @param recipientAddress Адрес получателя.
+     * @throws InterruptedException Если ожидание было прервано.
+     */
+    public void acquire(String account, String recipientAddress) throws InterruptedException {
+        domainBucket(recipientAddress).acquire();
+        accountBucket(account).acquire();
+    }
+
+    /**
+     * Резервирует разрешение на отправку письма на домен получателя без ожидания. Письмо нужно
+     * отправить не раньше, чем через возвращенное время, а затем дождаться разрешения учетной записи
+     * методом {@link #acquireAccount(String)}.
+     *
+     * @param recipientAddress Адрес получателя.
+     * @return Время в наносекундах, через которое письмо можно отправить на домен, или 0.
+     */
+    public long reserveDomain(String recipientAddress) {
+        return domainBucket(recipientAddress).reserve();
+    }
+
+    /**
+     * Ожидает разрешения на отправку письма с учетной записи.
+     *
+     * @param account Учетная запись отправителя.
+     * @throws InterruptedException Если ожидание было прервано.
+     */
+    public void acquireAccount(String account) throws InterruptedException {
+        accountBucket(account).acquire();
+    }
+
+    /**
+     * Уменьшает скорость отправки с учетной записи после ответа сервера об ограничении частоты.
+     *
+     * @param account Учетная запись отправителя.
+     */
+    public void onThrottled(String account) {
+        double rate = accountBucket(account).adjustRate(
+                current -> Math.max(accountRate * MIN_RATE_FRACTION, current * SLOW_DOWN_FACTOR));
+        logger.warn("Server throttled account {}. Send rate reduced to {} messages/s", account, String.format(Locale.ROOT, "%.2f", rate));
+    }
+
+    /**
+     * Постепенно возвращает скорость отправки с учетной записи к настроенной после успешной отправки.
+     *
+     * @param account Учетная запись отправителя.
+     */
+    public void onSuccess(String account) {
+        accountBucket(account).adjustRate(current -> Math.min(accountRate, current + accountRate / RECOVERY_STEPS));
+    }
+
+    private TokenBucket domainBucket(String recipientAddress) {
+        return domainBuckets.computeIfAbsent(domainOf(recipientAddress), domain -> new TokenBucket(domainRate, domainBurst));
+    }
+
+    private TokenBucket accountBucket(String account) {
+        return accountBuckets.computeIfAbsent(account, key -> new TokenBucket(accountRate, accountBurst));
+    }
+
+    /**
+     * Возвращает домен адреса электронной почты в нижнем регистре.
+     *
+     * @param address Адрес электронной почты.
+     * @return Домен адреса или пустая строка, если адрес не содержит символа @.
+     */
+    static String domainOf(String address) {
+        int at = address.lastIndexOf('@');
+        return at < 0 ? "" : address.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid value of {}: {}", name, value);
+            return defaultValue;
+        }
+    }
+}
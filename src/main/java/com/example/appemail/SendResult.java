@@ -0,0 +1,59 @@
+package com.example.appemail;
+
+import javax.mail.MessagingException;
+
+/**
+ * Класс SendResult хранит результат отправки письма одному получателю.
+ */
+public class SendResult {
+
+    private final String recipient;
+    private final MessagingException error;
+
+    private SendResult(String recipient, MessagingException error) {
+        this.recipient = recipient;
+        this.error = error;
+    }
+
+    /**
+     * Создает результат успешной отправки.
+     *
+     * @param recipient Адрес получателя.
+     * @return Результат успешной отправки.
+     */
+    public static SendResult success(String recipient) {
+        return new SendResult(recipient, null);
+    }
+
+    /**
+     * Создает результат неудачной отправки.
+     *
+     * @param recipient Адрес получателя.
+     * @param error Исключение, из-за которого письмо не было отправлено.
+     * @return Результат неудачной отправки.
+     */
+    public static SendResult failure(String recipient, MessagingException error) {
+        return new SendResult(recipient, error);
+    }
+
+    /**
+     * @return Адрес получателя.
+     */
+    public String getRecipient() {
+        return recipient;
+    }
+
+    /**
+     * @return true, если письмо отправлено, иначе false.
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    /**
+     * @return Исключение, из-за которого письмо не было отправлено, или null при успешной отправке.
+     */
+    public MessagingException getError() {
+        return error;
+    }
+}
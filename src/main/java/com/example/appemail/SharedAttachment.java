@@ -0,0 +1,172 @@
+package com.example.appemail;
+
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.mail.MessagingException;
+import javax.mail.Part;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.PreencodedMimeBodyPart;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс SharedAttachment — вложение рассылки, общее для всех писем. Файл читается и кодируется
+ * в base64 один раз при подготовке рассылки; закодированные данные записываются во временный файл,
+ * который отображается в память. Каждое письмо получает собственную часть
+ * {@link PreencodedMimeBodyPart} с заголовками вложения, а ее содержимое при отправке читается
+ * напрямую из общего отображения, поэтому вложение не копируется в кучу и не кодируется заново
+ * для каждого получателя.
+ */
+public class SharedAttachment implements DataSource {
+
+    private static final Logger logger = LogManager.getLogger(SharedAttachment.class);
+
+    static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final String ENCODING = "base64";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final String fileName;
+    private final String contentType;
+    private final MappedByteBuffer encoded;
+
+    private SharedAttachment(String fileName, String contentType, MappedByteBuffer encoded) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Читает файл и кодирует его для вложения в письма.
+     *
+     * @param file Путь к файлу вложения.
+     * @return Вложение, готовое к добавлению в письма.
+     * @throws IOException Если файл не удалось прочитать или закодировать.
+     */
+    public static SharedAttachment encode(Path file) throws IOException {
+        long started = System.nanoTime();
+        String contentType = Files.probeContentType(file);
+        Path encodedFile = Files.createTempFile("appemail-attachment-", ".b64");
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = Base64.getMimeEncoder().wrap(
+                         new BufferedOutputStream(Files.newOutputStream(encodedFile), WRITE_BUFFER_SIZE))) {
+                in.transferTo(out);
+            }
+            MappedByteBuffer encoded;
+            try (FileChannel channel = FileChannel.open(encodedFile, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Вложение слишком велико:" + " " + file);
+                }
+                encoded = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            logger.info("Encoded attachment {} ({} bytes) in {} ms",
+                    file, encoded.capacity(), (System.nanoTime() - started) / 1_000_000);
+            return new SharedAttachment(file.getFileName().toString(),
+                    contentType != null ? contentType : DEFAULT_CONTENT_TYPE, encoded);
+        } finally {
+            // Отображение остается доступным после удаления файла; если система не позволяет
+            // удалить отображенный файл, он удаляется при завершении приложения.
+            try {
+                Files.delete(encodedFile);
+            } catch (IOException e) {
+                encodedFile.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Создает часть письма с этим вложением. Часть создается для каждого письма,
+     * так как JavaMail изменяет заголовки частей при подготовке письма к отправке.
+     *
+     * @return Часть письма, содержимое которой читается из общих закодированных данных.
+     * @throws MessagingException Если заголовки части не удалось установить.
+     */
+    public MimeBodyPart createBodyPart() throws MessagingException {
+        MimeBodyPart part = new PreencodedMimeBodyPart(ENCODING);
+        part.setDataHandler(new DataHandler(this));
+        // Без заголовка JavaMail определяет кодировку части, читая все ее содержимое.
+        part.setHeader("Content-Transfer-Encoding", ENCODING);
+        part.setDisposition(Part.ATTACHMENT);
+        part.setFileName(fileName);
+        return part;
+    }
+
+    /**
+     * @return Размер вложения в закодированном виде в байтах.
+     */
+    public int getEncodedSize() {
+        return encoded.capacity();
+    }
+
+    /**
+     * Возвращает поток чтения закодированных данных. Потоки разных писем читают одно и то же
+     * отображение независимо друг от друга.
+     *
+     * @return Поток чтения данных вложения в кодировке base64.
+     */
+    @Override
+    public InputStream getInputStream() {
+        return new BufferInputStream(encoded.duplicate());
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("Вложение доступно только для чтения.");
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getName() {
+        return fileName;
+    }
+
+    /**
+     * Поток чтения из собственной копии позиции общего буфера.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.appemail;
+
+/**
+ * Класс SmtpAccount хранит учетные данные одной учетной записи отправителя:
+ * логин, источник пароля, SMTP сервер и вес учетной записи при распределении писем между учетными записями.
+ * Пароль не хранится в открытом виде и запрашивается у источника при открытии соединения.
+ */
+public class SmtpAccount {
+
+    static final int DEFAULT_WEIGHT = 1;
+
+    private final String username;
+    private final PasswordSource passwordSource;
+    private final String host;
+    private final int port;
+    private final int weight;
+
+    /**
+     * Конструктор класса SmtpAccount.
+     *
+     * @param username Имя пользователя для SMTP сервера.
+     * @param password Пароль для SMTP сервера.
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param weight Вес учетной записи при распределении писем.
+     */
+    public SmtpAccount(String username, String password, String host, int port, int weight) {
+        this(username, password::toCharArray, host, port, weight);
+    }
+
+    /**
+     * Конструктор класса SmtpAccount с источником пароля.
+     *
+     * @param username Имя пользователя для SMTP сервера.
+     * @param passwordSource Источник пароля для SMTP сервера.
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param weight Вес учетной записи при распределении писем.
+     */
+    public SmtpAccount(String username, PasswordSource passwordSource, String host, int port, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Вес учетной записи должен быть положительным:" + " " + username);
+        }
+        this.username = username;
+        this.passwordSource = passwordSource;
+        this.host = host;
+        this.port = port;
+        this.weight = weight;
+    }
+
+    /**
+     * Создает отправителя писем от имени учетной записи.
+     *
+     * @param maxConnections Максимальное число одновременно открытых соединений.
+     * @return Отправитель писем.
+     */
+    public EmailSender openSender(int maxConnections) {
+        return new EmailSender(username, passwordSource, host, port, maxConnections);
+    }
+
+    /**
+     * @return Имя пользователя для SMTP сервера.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return Источник пароля для SMTP сервера.
+     */
+    public PasswordSource getPasswordSource() {
+        return passwordSource;
+    }
+
+    /**
+     * @return Адрес SMTP сервера.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return Порт SMTP сервера.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return Вес учетной записи при распределении писем.
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.appemail;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+
+/**
+ * Интерфейс SmtpConnection описывает открытое и аутентифицированное соединение с SMTP сервером,
+ * которое хранится в {@link SmtpConnectionPool}. Реализации определяют способ работы с протоколом:
+ * через javax.mail ({@link JavaMailSmtpConnection}) или собственным клиентом с конвейерной
+ * передачей команд ({@link PipeliningSmtpConnection}). Соединение используется одним потоком за раз.
+ */
+public interface SmtpConnection {
+
+    /**
+     * Отправляет письмо в одной SMTP транзакции.
+     *
+     * @param message Письмо для отправки.
+     * @param recipients Адреса получателей конверта.
+     * @throws MessagingException Если письмо не удалось отправить. При частичной отправке
+     *                            выбрасывается SendFailedException со списками отправленных и неотправленных адресов.
+     */
+    void send(Message message, Address[] recipients) throws MessagingException;
+
+    /**
+     * @return true, если соединение открыто и может использоваться дальше.
+     */
+    boolean isConnected();
+
+    /**
+     * Закрывает соединение. Ошибки при закрытии не выбрасываются.
+     */
+    void close();
+}
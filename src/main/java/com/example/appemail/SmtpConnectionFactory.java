@@ -0,0 +1,18 @@
+package com.example.appemail;
+
+import javax.mail.MessagingException;
+
+/**
+ * Интерфейс SmtpConnectionFactory открывает новые соединения для {@link SmtpConnectionPool}.
+ */
+@FunctionalInterface
+public interface SmtpConnectionFactory {
+
+    /**
+     * Открывает и аутентифицирует новое соединение с SMTP сервером.
+     *
+     * @return Новое соединение.
+     * @throws MessagingException Если не удалось подключиться или пройти аутентификацию.
+     */
+    SmtpConnection open() throws MessagingException;
+}
@@ -0,0 +1,275 @@
+package com.example.appemail;
+
+import javax.mail.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс SmtpConnectionPool хранит ограниченный набор открытых и аутентифицированных SMTP-соединений
+ * и переиспользует их между отправками писем, чтобы не выполнять подключение, STARTTLS и AUTH для каждого письма.
+ * Соединение закрывается после заданного числа писем или долгого простоя, а разорванное соединение
+ * прозрачно заменяется новым.
+ * Соединения открывает {@link SmtpConnectionFactory}, поэтому пул работает с любой реализацией {@link SmtpConnection}.
+ */
+public class SmtpConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(SmtpConnectionPool.class);
+
+    private final String host;
+    private final int port;
+    private final SmtpConnectionFactory connectionFactory;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<PooledTransport> idleTransports = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    /**
+     * Конструктор класса SmtpConnectionPool.
+     *
+     * @param session Сессия, из которой создаются соединения.
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param username Имя пользователя для SMTP сервера.
+     * @param passwordSource Источник пароля для SMTP сервера. Пароль запрашивается при открытии каждого соединения.
+     * @param maxConnections Максимальное число одновременно открытых соединений.
+     * @param maxMessagesPerConnection Число писем, после которого соединение пересоздается.
+     * @param idleTimeoutMillis Время простоя в миллисекундах, после которого соединение закрывается.
+     */
+    public SmtpConnectionPool(Session session, String host, int port, String username, PasswordSource passwordSource,
+                              int maxConnections, int maxMessagesPerConnection, long idleTimeoutMillis) {
+        this(host, port, JavaMailSmtpConnection.factory(session, host, port, username, passwordSource),
+                maxConnections, maxMessagesPerConnection, idleTimeoutMillis);
+    }
+
+    /**
+     * Конструктор класса SmtpConnectionPool с фабрикой соединений.
+     *
+     * @param host Адрес SMTP сервера.
+     * @param port Порт SMTP сервера.
+     * @param connectionFactory Фабрика, открывающая соединения с сервером.
+     * @param maxConnections Максимальное число одновременно открытых соединений.
+     * @param maxMessagesPerConnection Число писем, после которого соединение пересоздается.
+     * @param idleTimeoutMillis Время простоя в миллисекундах, после которого соединение закрывается.
+     */
+    public SmtpConnectionPool(String host, int port, SmtpConnectionFactory connectionFactory,
+                              int maxConnections, int maxMessagesPerConnection, long idleTimeoutMillis) {
+        if (maxConnections < 1 || maxMessagesPerConnection < 1) {
+            throw new IllegalArgumentException("Размер пула и лимит писем на соединение должны быть положительными.");
+        }
+        this.host = host;
+        this.port = port;
+        this.connectionFactory = connectionFactory;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Отправляет сообщение через одно из соединений пула.
+     * Если соединение оказалось разорванным, письмо один раз повторяется через новое соединение.
+     *
+     * @param message Сообщение для отправки.
+     * @param recipients Адреса получателей конверта.
+     * @throws MessagingException Если сообщение не удалось отправить.
+     */
+    public void send(Message message, Address[] recipients) throws MessagingException {
+        long start = System.nanoTime();
+        try {
+            sendPooled(message, recipients);
+        } finally {
+            SendMetrics.getInstance().recordSend(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Отправляет сообщение через соединение пула, один раз переподключаясь при разрыве соединения.
+     *
+     * @param message Сообщение для отправки.
+     * @param recipients Адреса получателей конверта.
+     * @throws MessagingException Если сообщение не удалось отправить.
+     */
+    private void sendPooled(Message message, Address[] recipients) throws MessagingException {
+        PooledTransport pooled = borrow();
+        try {
+            pooled.send(message, recipients);
+        } catch (MessagingException e) {
+            if (pooled.connection.isConnected()) {
+                release(pooled);
+                throw e;
+            }
+            invalidate(pooled);
+            logger.warn("SMTP connection to {} was lost, reconnecting: {}", host, e.getMessage());
+            pooled = borrow();
+            try {
+                pooled.send(message, recipients);
+            } catch (MessagingException retryException) {
+                if (pooled.connection.isConnected()) {
+                    release(pooled);
+                } else {
+                    invalidate(pooled);
+                }
+                throw retryException;
+            }
+        }
+        release(pooled);
+    }
+
+    /**
+     * Возвращает адрес SMTP сервера, к которому подключается пул.
+     *
+     * @return Адрес SMTP сервера.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Закрывает все простаивающие соединения. Соединения, занятые в момент вызова,
+     * закрываются при возврате в пул.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (idleTransports) {
+            PooledTransport pooled;
+            while ((pooled = idleTransports.pollFirst()) != null) {
+                pooled.close();
+            }
+        }
+        logger.debug("SMTP connection pool for {} closed.", host);
+    }
+
+    /**
+     * Берет свободное соединение из пула или открывает новое, если свободных нет.
+     *
+     * @return Готовое к отправке соединение.
+     * @throws MessagingException Если не удалось подключиться к серверу.
+     */
+    private PooledTransport borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("Пул SMTP-соединений закрыт.");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Ожидание свободного SMTP-соединения прервано.", e);
+        }
+        try {
+            PooledTransport pooled;
+            while ((pooled = pollIdle()) != null) {
+                if (pooled.isReusable(System.currentTimeMillis())) {
+                    return pooled;
+                }
+                pooled.close();
+            }
+            return open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул после успешного использования.
+     *
+     * @param pooled Соединение, взятое ранее методом borrow.
+     */
+    private void release(PooledTransport pooled) {
+        try {
+            if (pooled.sentMessages < maxMessagesPerConnection) {
+                pooled.lastUsedMillis = System.currentTimeMillis();
+                // Флаг проверяется под блокировкой: иначе соединение, возвращенное во время close(),
+                // попало бы в уже опустошенный пул и осталось бы открытым.
+                synchronized (idleTransports) {
+                    if (!closed) {
+                        idleTransports.addFirst(pooled);
+                        return;
+                    }
+                }
+            }
+            pooled.close();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Закрывает соединение, которое больше нельзя использовать, и освобождает место в пуле.
+     *
+     * @param pooled Неисправное соединение.
+     */
+    private void invalidate(PooledTransport pooled) {
+        try {
+            pooled.close();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Извлекает последнее использованное свободное соединение.
+     *
+     * @return Свободное соединение или null, если свободных нет.
+     */
+    private PooledTransport pollIdle() {
+        synchronized (idleTransports) {
+            return idleTransports.pollFirst();
+        }
+    }
+
+    /**
+     * Открывает и аутентифицирует новое соединение с SMTP сервером.
+     *
+     * @return Новое соединение.
+     * @throws MessagingException Если не удалось подключиться или пройти аутентификацию.
+     */
+    private PooledTransport open() throws MessagingException {
+        SmtpConnection connection;
+        long start = System.nanoTime();
+        try {
+            connection = connectionFactory.open();
+        } finally {
+            SendMetrics.getInstance().recordConnect(System.nanoTime() - start);
+        }
+        logger.debug("Opened SMTP connection to {}:{}", host, port);
+        return new PooledTransport(connection);
+    }
+
+    /**
+     * Соединение пула вместе со статистикой его использования.
+     */
+    private class PooledTransport {
+        private final SmtpConnection connection;
+        private int sentMessages;
+        private long lastUsedMillis = System.currentTimeMillis();
+
+        private PooledTransport(SmtpConnection connection) {
+            this.connection = connection;
+        }
+
+        private void send(Message message, Address[] recipients) throws MessagingException {
+            sentMessages++;
+            long start = System.nanoTime();
+            try {
+                connection.send(message, recipients);
+            } finally {
+                SendMetrics.getInstance().recordData(System.nanoTime() - start);
+            }
+        }
+
+        private boolean isReusable(long nowMillis) {
+            return nowMillis - lastUsedMillis < idleTimeoutMillis
+                    && sentMessages < maxMessagesPerConnection;
+        }
+
+        private void close() {
+            connection.close();
+        }
+    }
+}
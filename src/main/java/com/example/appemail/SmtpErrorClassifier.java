@@ -0,0 +1,180 @@
+package com.example.appemail;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import com.sun.mail.util.MailConnectException;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Класс SmtpErrorClassifier определяет тип ошибки отправки по коду ответа SMTP сервера.
+ * Код берется из исключений javax.mail, а если его там нет — из начала текста ответа сервера.
+ * Коды 4xx считаются временными ошибками, коды 5xx — постоянными. Ответы, сообщающие
+ * о превышении частоты отправки, выделяются в отдельный тип. Ошибки ввода-вывода
+ * (обрыв соединения, тайм-аут) считаются временными.
+ */
+public final class SmtpErrorClassifier {
+
+    // Расширенные коды состояния (RFC 3463) и фразы сравниваются целиком: "5.4.5" не совпадает с "5.4.50",
+    // а "rate limit" — с "moderate limits".
+    private static final Pattern SENDER_LIMIT = Pattern.compile(
+            "(?<![\\d.])5\\.4\\.5(?![\\d.])|\\bdaily sending limit\\b");
+    private static final Pattern MAILBOX_FULL = Pattern.compile("(?<![\\d.])5\\.2\\.2(?![\\d.])");
+    private static final Pattern THROTTLING = Pattern.compile(
+            "(?<![\\d.])4\\.7\\.(?:0|28)(?![\\d.])"
+                    + "|\\b(?:rate limit(?:ed)?|sending rate|too many (?:connections|messages)|try again later)\\b");
+
+    private SmtpErrorClassifier() {
+    }
+
+    /**
+     * Определяет тип ошибки отправки.
+     *
+     * @param e Исключение, возникшее при отправке.
+     * @return Тип ошибки.
+     */
+    public static SmtpFailureType classify(MessagingException e) {
+        if (e instanceof AuthenticationFailedException) {
+            return SmtpFailureType.PERMANENT;
+        }
+        int code = replyCode(e);
+        if (code > 0) {
+            return classify(code, e.getMessage());
+        }
+        if (e instanceof MailConnectException || hasIoCause(e)) {
+            return SmtpFailureType.TRANSIENT;
+        }
+        return SmtpFailureType.PERMANENT;
+    }
+
+    /**
+     * Проверяет, связана ли ошибка с учетной записью отправителя, а не с письмом или получателем:
+     * ошибка аутентификации или исчерпанный суточный лимит отправки (код 5.4.5). Переполненный ящик
+     * получателя (код 5.2.2) к ним не относится, даже если в ответе упоминается квота.
+     * Такие письма имеет смысл отправить с другой учетной записи.
+     *
+     * @param e Исключение, возникшее при отправке.
+     * @return true, если ошибка связана с учетной записью отправителя.
+     */
+    public static boolean isAccountFailure(MessagingException e) {
+        if (e instanceof AuthenticationFailedException) {
+            return true;
+        }
+        int code = replyCode(e);
+        if (code == 530 || code == 534 || code == 535) {
+            return true;
+        }
+        String message = e.getMessage();
+        if (message == null) {
+            return false;
+        }
+        String text = message.toLowerCase(Locale.ROOT);
+        return code >= 500 && !MAILBOX_FULL.matcher(text).find() && SENDER_LIMIT.matcher(text).find();
+    }
+
+    /**
+     * Определяет тип ошибки по коду и тексту ответа SMTP сервера.
+     *
+     * @param code Трехзначный код ответа.
+     * @param message Текст ответа или null.
+     * @return Тип ошибки.
+     */
+    static SmtpFailureType classify(int code, String message) {
+        if (code == 421 || code == 450 || code == 451 || code == 452 || code == 454) {
+            return isThrottling(message) ? SmtpFailureType.THROTTLED : SmtpFailureType.TRANSIENT;
+        }
+        if (code >= 400 && code < 500) {
+            return SmtpFailureType.TRANSIENT;
+        }
+        return SmtpFailureType.PERMANENT;
+    }
+
+    /**
+     * Возвращает ошибку, относящуюся к конкретному получателю письма с несколькими получателями:
+     * отказ сервера принять этот адрес, если он есть в цепочке исключений, иначе общую ошибку отправки.
+     *
+     * @param e Исключение, возникшее при отправке.
+     * @param address Адрес получателя.
+     * @return Ошибка для получателя.
+     */
+    static MessagingException recipientError(MessagingException e, String address) {
+        for (Exception current = e; current instanceof MessagingException; current = ((MessagingException) current).getNextException()) {
+            if (current instanceof SMTPAddressFailedException
+                    && address.equalsIgnoreCase(((SMTPAddressFailedException) current).getAddress().getAddress())) {
+                return (MessagingException) current;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Извлекает код ответа SMTP сервера из исключения и цепочки вложенных исключений.
+     *
+     * @param e Исключение, возникшее при отправке.
+     * @return Код ответа или -1, если его не удалось определить.
+     */
+    static int replyCode(MessagingException e) {
+        for (Exception current = e; current != null; ) {
+            int code = -1;
+            if (current instanceof SMTPSendFailedException) {
+                code = ((SMTPSendFailedException) current).getReturnCode();
+            } else if (current instanceof SMTPAddressFailedException) {
+                code = ((SMTPAddressFailedException) current).getReturnCode();
+            } else if (current instanceof SMTPSenderFailedException) {
+                code = ((SMTPSenderFailedException) current).getReturnCode();
+            } else {
+                code = parseReplyCode(current.getMessage());
+            }
+            if (code >= 200 && code < 600) {
+                return code;
+            }
+            current = current instanceof MessagingException ? ((MessagingException) current).getNextException() : null;
+        }
+        return -1;
+    }
+
+    /**
+     * Читает трехзначный код ответа из начала текста ответа сервера.
+     *
+     * @param message Текст ответа.
+     * @return Код ответа или -1, если текст не начинается с кода.
+     */
+    private static int parseReplyCode(String message) {
+        if (message == null || message.length() < 3) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = message.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            code = code * 10 + (c - '0');
+        }
+        if (message.length() > 3 && message.charAt(3) != ' ' && message.charAt(3) != '-') {
+            return -1;
+        }
+        return code;
+    }
+
+    private static boolean isThrottling(String message) {
+        if (message == null) {
+            return false;
+        }
+        return THROTTLING.matcher(message.toLowerCase(Locale.ROOT)).find();
+    }
+
+    private static boolean hasIoCause(Throwable e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
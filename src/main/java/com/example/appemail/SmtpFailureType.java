@@ -0,0 +1,29 @@
+package com.example.appemail;
+
+/**
+ * Тип ошибки отправки письма, определяющий, имеет ли смысл повторять отправку.
+ */
+public enum SmtpFailureType {
+
+    /**
+     * Временная ошибка: код ответа 4xx, обрыв или тайм-аут соединения. Отправку можно повторить.
+     */
+    TRANSIENT,
+
+    /**
+     * Сервер ограничивает частоту отправки. Отправку можно повторить после увеличенной паузы.
+     */
+    THROTTLED,
+
+    /**
+     * Постоянная ошибка: код ответа 5xx, неверный адрес или ошибка аутентификации. Повтор не поможет.
+     */
+    PERMANENT;
+
+    /**
+     * @return true, если отправку имеет смысл повторить.
+     */
+    public boolean isRetryable() {
+        return this != PERMANENT;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.appemail;
+
+/**
+ * Класс SpooledMessage описывает письмо, записанное в {@link OutboxSpool}: адрес получателя
+ * и положение записи в файле сегмента. Текст письма хранится только на диске.
+ */
+public class SpooledMessage {
+
+    private final String recipient;
+    private final long segmentId;
+    private final long offset;
+    private final int length;
+
+    SpooledMessage(String recipient, long segmentId, long offset, int length) {
+        this.recipient = recipient;
+        this.segmentId = segmentId;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return Адрес получателя письма.
+     */
+    public String getRecipient() {
+        return recipient;
+    }
+
+    long getSegmentId() {
+        return segmentId;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.appemail;
+
+/**
+ * Класс StaticKeySource строит ключевой поток повторением постоянного ключа.
+ * Поток вычисляется один раз и удлиняется только при запросе более длинного потока,
+ * поэтому при расшифровке не нужно брать остаток от деления и обращаться к строке ключа для каждого байта.
+ */
+public class StaticKeySource implements KeySource {
+
+    private static final int INITIAL_LENGTH = 256;
+
+    private final byte[] key;
+    private volatile byte[] keystream;
+
+    /**
+     * Конструктор класса StaticKeySource.
+     *
+     * @param key Ключ. Используются младшие байты символов ключа.
+     */
+    public StaticKeySource(String key) {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Ключ расшифровки не может быть пустым.");
+        }
+        this.key = new byte[key.length()];
+        for (int i = 0; i < key.length(); i++) {
+            this.key[i] = (byte) key.charAt(i);
+        }
+        this.keystream = expand(INITIAL_LENGTH);
+    }
+
+    @Override
+    public byte[] keystream(int minLength) {
+        byte[] current = keystream;
+        if (current.length >= minLength) {
+            return current;
+        }
+        byte[] expanded = expand(Math.max(minLength, current.length * 2));
+        keystream = expanded;
+        return expanded;
+    }
+
+    private byte[] expand(int length) {
+        byte[] stream = new byte[length];
+        for (int i = 0; i < length; i += key.length) {
+            System.arraycopy(key, 0, stream, i, Math.min(key.length, length - i));
+        }
+        return stream;
+    }
+}
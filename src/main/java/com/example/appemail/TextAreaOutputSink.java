@@ -0,0 +1,166 @@
+package com.example.appemail;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.control.TextArea;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Класс TextAreaOutputSink выводит сообщения в TextArea пакетами.
+ * Сообщения из любых потоков складываются в неблокирующую очередь и переносятся в TextArea
+ * одним вызовом appendText не чаще заданной частоты кадров. Таймер кадров работает, только пока
+ * в очереди есть сообщения: он запускается первым сообщением и останавливается, когда очередь пуста.
+ * В TextArea хранится не более
+ * заданного числа последних строк, поэтому объем памяти не растет вместе с размером рассылки.
+ */
+public class TextAreaOutputSink implements OutputSink {
+
+    static final int DEFAULT_MAX_LINES = 5000;
+    static final int DEFAULT_FRAMES_PER_SECOND = 30;
+
+    private final TextArea textArea;
+    private final Queue<String> pendingMessages = new ConcurrentLinkedQueue<>();
+    private final LineLengthRing visibleLines;
+    private final long flushIntervalNanos;
+    private final AnimationTimer flushTimer;
+    private final AtomicBoolean timerRunning = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /**
+     * Конструктор класса TextAreaOutputSink с параметрами по умолчанию.
+     * Должен вызываться в потоке JavaFX.
+     *
+     * @param textArea Область, в которую выводятся сообщения.
+     */
+    public TextAreaOutputSink(TextArea textArea) {
+        this(textArea, DEFAULT_MAX_LINES, DEFAULT_FRAMES_PER_SECOND);
+    }
+
+    /**
+     * Конструктор класса TextAreaOutputSink. Должен вызываться в потоке JavaFX.
+     *
+     * @param textArea Область, в которую выводятся сообщения.
+     * @param maxLines Максимальное число строк, хранимых в TextArea.
+     * @param framesPerSecond Максимальное число обновлений TextArea в секунду.
+     */
+    public TextAreaOutputSink(TextArea textArea, int maxLines, int framesPerSecond) {
+        if (maxLines < 1 || framesPerSecond < 1) {
+            throw new IllegalArgumentException("Число строк и частота обновления должны быть положительными.");
+        }
+        this.textArea = textArea;
+        this.visibleLines = new LineLengthRing(maxLines);
+        this.flushIntervalNanos = TimeUnit.SECONDS.toNanos(1) / framesPerSecond;
+        this.flushTimer = new AnimationTimer() {
+            private long lastFlushNanos;
+
+            @Override
+            public void handle(long now) {
+                if (now - lastFlushNanos >= flushIntervalNanos) {
+                    lastFlushNanos = now;
+                    flush();
+                    if (pendingMessages.isEmpty()) {
+                        stopTimer();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Добавляет текст в очередь вывода. Метод можно вызывать из любого потока.
+     *
+     * @param text Текст для вывода.
+     */
+    @Override
+    public void appendText(String text) {
+        pendingMessages.add(text);
+        if (!stopped && timerRunning.compareAndSet(false, true)) {
+            Platform.runLater(flushTimer::start);
+        }
+    }
+
+    /**
+     * Останавливает вывод, предварительно перенеся накопленные сообщения в TextArea. Сообщения,
+     * добавленные после остановки, не выводятся. Должен вызываться в потоке JavaFX.
+     */
+    public void stop() {
+        stopped = true;
+        flush();
+        flushTimer.stop();
+    }
+
+    /**
+     * Останавливает таймер кадров, когда очередь опустела. Если сообщение было добавлено, пока таймер
+     * еще считался запущенным, таймер сразу запускается снова, чтобы сообщение не осталось в очереди.
+     * Вызывается в потоке JavaFX.
+     */
+    private void stopTimer() {
+        flushTimer.stop();
+        timerRunning.set(false);
+        if (!stopped && !pendingMessages.isEmpty() && timerRunning.compareAndSet(false, true)) {
+            flushTimer.start();
+        }
+    }
+
+    /**
+     * Переносит все накопленные сообщения в TextArea одним обновлением и удаляет строки,
+     * вышедшие за пределы лимита.
+     */
+    private void flush() {
+        if (pendingMessages.isEmpty()) {
+            return;
+        }
+        StringBuilder chunk = new StringBuilder();
+        String message;
+        while ((message = pendingMessages.poll()) != null) {
+            chunk.append(message);
+        }
+        textArea.appendText(chunk.toString());
+        int charsToDrop = visibleLines.append(chunk);
+        if (charsToDrop > 0) {
+            textArea.deleteText(0, charsToDrop);
+        }
+    }
+
+    /**
+     * Кольцевой буфер длин строк, находящихся в TextArea.
+     */
+    private static class LineLengthRing {
+        private final int[] lengths;
+        private int head;
+        private int size;
+        private int openLineLength;
+
+        private LineLengthRing(int capacity) {
+            this.lengths = new int[capacity];
+        }
+
+        /**
+         * Учитывает добавленный текст.
+         *
+         * @param text Добавленный текст.
+         * @return Число символов в начале TextArea, которые нужно удалить.
+         */
+        private int append(CharSequence text) {
+            int charsToDrop = 0;
+            for (int i = 0; i < text.length(); i++) {
+                openLineLength++;
+                if (text.charAt(i) == '\n') {
+                    if (size == lengths.length) {
+                        charsToDrop += lengths[head];
+                        head = (head + 1) % lengths.length;
+                        size--;
+                    }
+                    lengths[(head + size) % lengths.length] = openLineLength;
+                    size++;
+                    openLineLength = 0;
+                }
+            }
+            return charsToDrop;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.appemail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Класс TokenBucket ограничивает частоту операций алгоритмом маркерной корзины.
+ * Маркеры пополняются с постоянной скоростью до емкости корзины, которая задает допустимый всплеск.
+ * Метод {@link #acquire()} резервирует маркер под блокировкой, а ожидает его появления уже
+ * без блокировки, поэтому ожидающие потоки не мешают друг другу. Метод {@link #reserve()} только
+ * резервирует маркер, чтобы вызывающий код мог отложить операцию, не занимая поток ожиданием. Скорость пополнения можно
+ * менять во время работы.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Конструктор класса TokenBucket. Корзина создается заполненной.
+     *
+     * @param ratePerSecond Скорость пополнения, маркеров в секунду.
+     * @param capacity Емкость корзины, то есть допустимый всплеск.
+     */
+    public TokenBucket(double ratePerSecond, int capacity) {
+        if (ratePerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Скорость и емкость корзины маркеров должны быть положительными.");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Забирает маркер, при необходимости ожидая его появления.
+     *
+     * @throws InterruptedException Если ожидание было прервано.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Устанавливает скорость пополнения корзины.
+     *
+     * @param ratePerSecond Скорость пополнения, маркеров в секунду.
+     */
+    public synchronized void setRate(double ratePerSecond) {
+        refill(System.nanoTime());
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    /**
+     * Изменяет скорость пополнения корзины функцией от текущей скорости. Чтение и запись скорости
+     * выполняются под одной блокировкой, поэтому одновременные изменения не теряются.
+     *
+     * @param adjustment Функция, вычисляющая новую скорость по текущей, маркеров в секунду.
+     * @return Новая скорость пополнения, маркеров в секунду.
+     */
+    public synchronized double adjustRate(DoubleUnaryOperator adjustment) {
+        refill(System.nanoTime());
+        ratePerSecond = adjustment.applyAsDouble(ratePerSecond);
+        return ratePerSecond;
+    }
+
+    /**
+     * @return Текущая скорость пополнения, маркеров в секунду.
+     */
+    public synchronized double getRate() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Резервирует маркер без ожидания. Если маркеров нет, их число становится отрицательным,
+     * и следующие резервирования встают в очередь за уже зарезервированными маркерами.
+     * Вызывающий код должен выполнить операцию не раньше, чем через возвращенное время.
+     *
+     * @return Время ожидания маркера в наносекундах.
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens / ratePerSecond * 1e9);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1e9 * ratePerSecond);
+        lastRefillNanos = now;
+    }
+}
@@ -7,6 +7,7 @@
  * - javafx.fxml: Модуль JavaFX, обеспечивающий поддержку FXML. FXML используется для определения пользовательского интерфейса.
  * - java.mail: Модуль, предоставляющий API для работы с электронной почтой. Используется для создания, отправки и получения электронных сообщений.
  * - org.apache.logging.log4j: Модуль Apache Log4j 2 для логирования. Используется для записи логов работы приложения.
+ * - java.management: Модуль JMX. Используется для публикации показателей рассылки.
  *
  * Детали модуля:
  * - opens com.example.emailapp to javafx.fxml: Открывает пакет com.example.emailapp для модуля javafx.fxml, что позволяет FXML загружать классы из этого пакета.
@@ -17,6 +18,7 @@ module com.example.emailapp {
     requires javafx.fxml;
     requires java.mail;
     requires org.apache.logging.log4j;
+    requires java.management;
 
     opens com.example.appemail to javafx.fxml;
     exports com.example.appemail;
@@ -0,0 +1,59 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkEmailDispatcherTest {
+
+    private ScriptedSmtpServer server;
+    private EmailSender sender;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (sender != null) {
+            sender.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void closeCompletesSendsDelayedByDomainLimit() throws Exception {
+        server = new ScriptedSmtpServer("250 PIPELINING");
+        sender = new EmailSender("sender@example.com", "", server.getHost(), server.getPort(), 1);
+        List<SendResult> delivered = new ArrayList<>();
+        // Одно письмо в секунду на домен: второе и третье письма откладываются планировщиком.
+        BulkEmailDispatcher dispatcher = new BulkEmailDispatcher(new AccountRouter(sender),
+                new MimeMessageFactory("Тема", MessageTemplate.compile("Привет, {name}!\n")), 1, 10, 1,
+                result -> {
+                    synchronized (delivered) {
+                        delivered.add(result);
+                    }
+                }, new RetryPolicy(), new SendRateLimiter(100, 100, 1, 1));
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(dispatcher.submit(new Recipient("user" + i + "@example.com", "Иван")));
+        }
+        assertTrue(futures.get(0).get(5, TimeUnit.SECONDS).isSuccessful());
+
+        dispatcher.close();
+
+        for (CompletableFuture<SendResult> future : futures.subList(1, 3)) {
+            SendResult result = future.get(1, TimeUnit.SECONDS);
+            assertFalse(result.isSuccessful());
+            assertTrue(BulkEmailDispatcher.isStopped(result));
+        }
+        dispatcher.finish().get(1, TimeUnit.SECONDS);
+        assertEquals(3, delivered.size());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что {@link EmailAddressValidator} принимает ровно те же адреса, что и регулярное выражение,
+ * которое использовалось для проверки адресов ранее.
+ */
+class EmailAddressValidatorTest {
+
+    private static final Pattern LEGACY_EMAIL_PATTERN = Pattern.compile("^[\\w-_.+]*[\\w-_.]@([\\w]+\\.)+[\\w]+[\\w]$");
+    private static final String ALPHABET = "ab Z09_-.+@é";
+
+    @Test
+    void matchesLegacyPatternOnTypicalAddresses() {
+        String[] addresses = {
+                "user@example.com", "first.last+tag@mail.example.co.uk", "a@b.cd", "a@b.c", "a@b", "@example.com",
+                "user@", "user+@example.com", "user-@example.com", "user.@example.com", ".user@example.com",
+                "user@example..com", "user@.example.com", "user@example.com.", "user@exa-mple.com", "user@@example.com",
+                "us er@example.com", "user@example.c_m", "пользователь@example.com", "user@пример.рф", "", "@", "a@b.c@d.ef"
+        };
+        for (String address : addresses) {
+            assertEquals(LEGACY_EMAIL_PATTERN.matcher(address).matches(), EmailAddressValidator.isValid(address), address);
+        }
+    }
+
+    @Test
+    void matchesLegacyPatternOnRandomStrings() {
+        Random random = new Random(42);
+        StringBuilder address = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            address.setLength(0);
+            int length = random.nextInt(14);
+            for (int j = 0; j < length; j++) {
+                address.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            String text = address.toString();
+            assertEquals(LEGACY_EMAIL_PATTERN.matcher(text).matches(), EmailAddressValidator.isValid(text), text);
+        }
+    }
+
+    @Test
+    void validatesAddressInsideLongerText() {
+        String line = "  user@example.com, Имя";
+        assertTrue(EmailAddressValidator.isValid(line, 2, 18));
+        assertFalse(EmailAddressValidator.isValid(line, 2, 19));
+    }
+}
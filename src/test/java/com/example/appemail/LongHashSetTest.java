@@ -0,0 +1,63 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void addsEachValueOnce() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.contains(42));
+        assertFalse(set.contains(43));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void storesZero() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void keepsValuesWithEqualLowBitsAcrossGrowth() {
+        LongHashSet set = new LongHashSet();
+        for (long i = 1; i <= 1000; i++) {
+            assertTrue(set.add(i << 32));
+        }
+        for (long i = 1; i <= 1000; i++) {
+            assertTrue(set.contains(i << 32));
+            assertFalse(set.contains((i << 32) + 1));
+        }
+        assertEquals(1000, set.size());
+    }
+
+    @Test
+    void matchesHashSetOnRandomValues() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet(8);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(50_000) * 0x9E3779B97F4A7C15L;
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < 60_000; i++) {
+            long value = i * 0x9E3779B97F4A7C15L;
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
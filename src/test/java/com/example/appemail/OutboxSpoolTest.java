@@ -0,0 +1,135 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversUnacknowledgedMessagesInOrder() throws Exception {
+        Path outbox = directory.resolve("outbox");
+        try (OutboxSpool spool = OutboxSpool.open(outbox, 10, OutboxSpool.DEFAULT_SEGMENT_SIZE)) {
+            SpooledMessage first = spool.append("first@example.com", content("first"));
+            spool.append("second@example.com", content("second"));
+            spool.append("third@example.com", content("third"));
+            spool.sync(first);
+            spool.acknowledge(first);
+        }
+
+        try (OutboxSpool spool = OutboxSpool.open(outbox, 10, OutboxSpool.DEFAULT_SEGMENT_SIZE)) {
+            List<SpooledMessage> recovered = spool.getRecovered();
+            assertEquals(2, recovered.size());
+            assertEquals("second@example.com", recovered.get(0).getRecipient());
+            assertEquals("third@example.com", recovered.get(1).getRecipient());
+            assertArrayEquals(content("second"), spool.read(recovered.get(0)));
+            assertArrayEquals(content("third"), spool.read(recovered.get(1)));
+        }
+    }
+
+    @Test
+    void discardsTornLastRecord() throws Exception {
+        Path outbox = directory.resolve("outbox");
+        try (OutboxSpool spool = OutboxSpool.open(outbox, 10, OutboxSpool.DEFAULT_SEGMENT_SIZE)) {
+            spool.append("whole@example.com", content("whole"));
+        }
+        Path segment = onlySegment(outbox);
+        long completeLength = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+
+        try (OutboxSpool spool = OutboxSpool.open(outbox, 10, OutboxSpool.DEFAULT_SEGMENT_SIZE)) {
+            assertEquals(1, spool.getRecovered().size());
+            assertEquals("whole@example.com", spool.getRecovered().get(0).getRecipient());
+            assertEquals(completeLength, Files.size(segment));
+        }
+    }
+
+    @Test
+    void deletesSegmentsOnceAllMessagesAreAcknowledged() throws Exception {
+        Path outbox = directory.resolve("outbox");
+        try (OutboxSpool spool = OutboxSpool.open(outbox, 10, 64)) {
+            SpooledMessage first = spool.append("first@example.com", content("first message body"));
+            SpooledMessage second = spool.append("second@example.com", content("second message body"));
+            assertFalse(first.getSegmentId() == second.getSegmentId());
+            spool.acknowledge(first);
+            assertEquals(1, countFiles(outbox, ".seg"));
+            assertEquals(1, countFiles(outbox, ".ack"));
+            spool.acknowledge(second);
+        }
+        assertFalse(Files.exists(outbox));
+    }
+
+    @Test
+    void keepsUndeliveredMessagesAfterAcknowledgedOnes() throws Exception {
+        Path outbox = directory.resolve("outbox");
+        try (OutboxSpool spool = OutboxSpool.open(outbox, 10, 64)) {
+            spool.acknowledge(spool.append("first@example.com", content("first message body")));
+            spool.append("second@example.com", content("second message body"));
+        }
+        assertTrue(Files.isDirectory(outbox));
+        try (OutboxSpool spool = OutboxSpool.open(outbox, 10, 64)) {
+            assertEquals(1, spool.getRecovered().size());
+            assertEquals("second@example.com", spool.getRecovered().get(0).getRecipient());
+        }
+    }
+
+    @Test
+    void abortReleasesAppendWaitingForSpace() throws Exception {
+        try (OutboxSpool spool = OutboxSpool.open(directory.resolve("outbox"), 1, OutboxSpool.DEFAULT_SEGMENT_SIZE)) {
+            spool.append("first@example.com", content("first"));
+            CompletableFuture<SpooledMessage> blocked = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return spool.append("second@example.com", content("second"));
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            Thread.sleep(100);
+            assertFalse(blocked.isDone());
+
+            spool.abort(new IOException("feeder failed"));
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> blocked.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause().getCause() instanceof IOException);
+            assertThrows(IOException.class, () -> spool.append("third@example.com", content("third")));
+        }
+    }
+
+    private static byte[] content(String body) {
+        return ("Subject: test\r\n\r\n" + body + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Path onlySegment(Path outbox) throws IOException {
+        try (Stream<Path> files = Files.list(outbox)) {
+            List<Path> segments = files.filter(file -> file.toString().endsWith(".seg")).toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private static long countFiles(Path outbox, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(outbox)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).count();
+        }
+    }
+}
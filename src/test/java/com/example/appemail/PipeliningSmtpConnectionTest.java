@@ -0,0 +1,92 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipeliningSmtpConnectionTest {
+
+    private ScriptedSmtpServer server;
+    private SmtpConnection connection;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (connection != null) {
+            connection.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void sendsEnvelopeInOnePipelinedBatchAndReportsRejectedRecipients() throws Exception {
+        connect("250-PIPELINING", "250 8BITMIME");
+        MimeMessage message = message("Иван");
+
+        SendFailedException e = assertThrows(SendFailedException.class, () -> connection.send(message,
+                new InternetAddress[]{new InternetAddress("good@example.com"), new InternetAddress("bad@example.com")}));
+
+        assertArrayEquals(new InternetAddress[]{new InternetAddress("good@example.com")}, e.getValidSentAddresses());
+        assertArrayEquals(new InternetAddress[]{new InternetAddress("bad@example.com")}, e.getInvalidAddresses());
+        assertTrue(connection.isConnected());
+        String data = server.awaitMessage();
+        assertEquals(List.of("MAIL FROM:<sender@example.com> BODY=8BITMIME", "RCPT TO:<good@example.com>",
+                "RCPT TO:<bad@example.com>", "DATA"), server.envelope);
+        assertTrue(data.contains("Привет, Иван!"));
+    }
+
+    @Test
+    void encodesEightBitTextWhenServerDoesNotOffer8BitMime() throws Exception {
+        connect("250 PIPELINING");
+
+        connection.send(message("Иван"), new InternetAddress[]{new InternetAddress("good@example.com")});
+
+        String data = server.awaitMessage();
+        assertEquals("MAIL FROM:<sender@example.com>", server.envelope.get(0));
+        assertTrue(data.contains("Content-Transfer-Encoding: quoted-printable"));
+        assertTrue(data.chars().allMatch(c -> c < 128));
+    }
+
+    @Test
+    void dropsConnectionWhenMessageContentFailsAfterDataReply() throws Exception {
+        connect("250-PIPELINING", "250 8BITMIME");
+        MimeMessage message = new MimeMessage(message("Иван")) {
+            @Override
+            public void writeTo(OutputStream os, String[] ignoreList) throws MessagingException {
+                throw new MessagingException("Не удалось прочитать текст письма.");
+            }
+        };
+
+        assertThrows(MessagingException.class,
+                () -> connection.send(message, new InternetAddress[]{new InternetAddress("good@example.com")}));
+
+        assertFalse(connection.isConnected());
+    }
+
+    private void connect(String... extensions) throws Exception {
+        server = new ScriptedSmtpServer(extensions);
+        connection = PipeliningSmtpConnection.factory(server.getHost(), server.getPort(),
+                "sender@example.com", () -> new char[0]).open();
+    }
+
+    private static MimeMessage message(String name) throws MessagingException {
+        MimeMessage message = new MimeMessageFactory("Тема", MessageTemplate.compile("Привет, {name}!\n"))
+                .create(new Recipient("good@example.com", name));
+        message.setFrom(new InternetAddress("sender@example.com"));
+        return message;
+    }
+}
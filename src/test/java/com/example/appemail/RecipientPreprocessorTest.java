@@ -0,0 +1,27 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecipientPreprocessorTest {
+
+    @Test
+    void dropsDuplicatesAndGroupsRecipientsByDomainWithinWindow() {
+        RecipientPreprocessor preprocessor = new RecipientPreprocessor(4);
+        Stream<Recipient> recipients = Stream.of("a1@a.com", "b1@b.com", " A1@A.com ", "a2@a.com", "b2@b.com",
+                "c1@c.com", "b3@b.com").map(email -> new Recipient(email, ""));
+
+        List<String> prepared;
+        try (Stream<Recipient> stream = preprocessor.prepare(recipients)) {
+            prepared = stream.map(Recipient::getEmail).collect(Collectors.toList());
+        }
+
+        assertEquals(List.of("a1@a.com", "a2@a.com", "b1@b.com", "b2@b.com", "c1@c.com", "b3@b.com"), prepared);
+        assertEquals(1, preprocessor.getDuplicateCount());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.appemail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SMTP сервер для тестов: объявляет заданные расширения, отклоняет адреса, начинающиеся с "bad",
+ * и запоминает команды конверта и тексты полученных писем. Соединения обслуживаются по очереди.
+ */
+final class ScriptedSmtpServer implements AutoCloseable {
+    final List<String> envelope = new CopyOnWriteArrayList<>();
+    final List<String> messages = new CopyOnWriteArrayList<>();
+    private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    private final String[] extensions;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final Object messageLock = new Object();
+    private final Thread thread = new Thread(this::serve, "scripted-smtp-server");
+    private volatile Socket current;
+
+    ScriptedSmtpServer(String... extensions) throws IOException {
+        this.extensions = extensions;
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    String getHost() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    /**
+     * @return Число принятых соединений.
+     */
+    int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Ожидает, пока сервер получит заданное число писем, не дольше 5 секунд.
+     *
+     * @param count Число писем.
+     * @return Текст последнего полученного письма.
+     */
+    String awaitMessages(int count) throws InterruptedException {
+        synchronized (messageLock) {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (messages.size() < count && System.currentTimeMillis() < deadline) {
+                messageLock.wait(100);
+            }
+        }
+        assertTrue(messages.size() >= count, "Сервер получил писем:" + " " + messages.size());
+        return messages.get(messages.size() - 1);
+    }
+
+    String awaitMessage() throws InterruptedException {
+        return awaitMessages(1);
+    }
+
+    /**
+     * Разрывает текущее соединение со стороны сервера.
+     */
+    void dropConnection() throws IOException {
+        Socket socket = current;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                current = socket;
+                connectionCount.incrementAndGet();
+                converse(socket);
+            } catch (IOException e) {
+                // Соединение закрыто клиентом или сервер остановлен.
+            }
+        }
+    }
+
+    private void converse(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.ISO_8859_1);
+        reply(out, "220 scripted");
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("EHLO")) {
+                reply(out, "250-scripted");
+                for (String extension : extensions) {
+                    reply(out, extension);
+                }
+            } else if (line.startsWith("MAIL") || line.startsWith("RCPT")) {
+                envelope.add(line);
+                reply(out, line.startsWith("RCPT TO:<bad") ? "550 5.1.1 No such user" : "250 OK");
+            } else if (line.equals("DATA")) {
+                envelope.add(line);
+                reply(out, "354 Go ahead");
+                StringBuilder text = new StringBuilder();
+                while ((line = in.readLine()) != null && !line.equals(".")) {
+                    text.append(line).append('\n');
+                }
+                reply(out, "250 Queued");
+                // Текст читается как ISO-8859-1 и сравнивается после декодирования в UTF-8.
+                synchronized (messageLock) {
+                    messages.add(new String(text.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8));
+                    messageLock.notifyAll();
+                }
+            } else if (line.equals("QUIT")) {
+                reply(out, "221 Bye");
+                return;
+            } else {
+                reply(out, "250 OK");
+            }
+        }
+    }
+
+    private static void reply(PrintStream out, String line) {
+        out.print(line + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropConnection();
+    }
+}
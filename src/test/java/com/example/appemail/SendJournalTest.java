@@ -0,0 +1,83 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.mail.MessagingException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SendJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedJournalKnowsSentRecipientsOfItsCampaign() throws IOException {
+        Path path = directory.resolve("journal").resolve("send-journal.log");
+        try (SendJournal journal = SendJournal.open(path, "campaign-a")) {
+            journal.record(SendResult.success("sent@example.com"));
+            journal.record(SendResult.failure("failed@example.com", new MessagingException("550")));
+        }
+        try (SendJournal journal = SendJournal.open(path, "campaign-b")) {
+            journal.record(SendResult.success("other@example.com"));
+        }
+
+        try (SendJournal journal = SendJournal.open(path, "campaign-a")) {
+            assertTrue(journal.isCompleted("sent@example.com"));
+            assertTrue(journal.isCompleted(" SENT@Example.com "));
+            assertFalse(journal.isCompleted("failed@example.com"));
+            assertFalse(journal.isCompleted("other@example.com"));
+            assertEquals(1, journal.getCompletedCount());
+        }
+    }
+
+    @Test
+    void discardsTornLastRecord() throws IOException {
+        Path path = directory.resolve("send-journal.log");
+        try (SendJournal journal = SendJournal.open(path, "campaign")) {
+            journal.record(SendResult.success("first@example.com"));
+        }
+        long completeLength = Files.size(path);
+        Files.write(path, "campaign\tS\ttorn@exam".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (SendJournal journal = SendJournal.open(path, "campaign")) {
+            assertEquals(completeLength, Files.size(path));
+            assertTrue(journal.isCompleted("first@example.com"));
+            assertFalse(journal.isCompleted("torn@exam"));
+            journal.record(SendResult.success("second@example.com"));
+        }
+        try (SendJournal journal = SendJournal.open(path, "campaign")) {
+            assertTrue(journal.isCompleted("second@example.com"));
+            assertEquals(2, journal.getCompletedCount());
+        }
+    }
+
+    @Test
+    void refusesSecondWriterWhileJournalIsOpen() throws IOException {
+        Path path = directory.resolve("send-journal.log");
+        try (SendJournal journal = SendJournal.open(path, "campaign")) {
+            journal.record(SendResult.success("first@example.com"));
+            IOException e = assertThrows(IOException.class, () -> SendJournal.open(path, "campaign"));
+            assertTrue(e.getMessage().contains(path.toString()));
+        }
+        try (SendJournal journal = SendJournal.open(path, "campaign")) {
+            assertTrue(journal.isCompleted("first@example.com"));
+        }
+    }
+
+    @Test
+    void rejectsRecordsAfterClose() throws IOException {
+        SendJournal journal = SendJournal.open(directory.resolve("send-journal.log"), "campaign");
+        journal.close();
+        assertThrows(IllegalStateException.class, () -> journal.record(SendResult.success("late@example.com")));
+    }
+}
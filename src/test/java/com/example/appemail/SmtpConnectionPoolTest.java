@@ -0,0 +1,95 @@
+package com.example.appemail;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SmtpConnectionPoolTest {
+
+    private ScriptedSmtpServer server;
+    private SmtpConnectionPool pool;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (pool != null) {
+            pool.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void reusesConnectionForConsecutiveMessages() throws Exception {
+        open(10, 60_000);
+
+        send(3);
+
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    void replacesConnectionAfterMessageLimit() throws Exception {
+        open(2, 60_000);
+
+        send(3);
+
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    @Test
+    void replacesConnectionIdleForTooLong() throws Exception {
+        open(10, 50);
+
+        send(1);
+        Thread.sleep(100);
+        send(1);
+
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    @Test
+    void reconnectsAndResendsWhenConnectionIsLost() throws Exception {
+        open(10, 60_000);
+        send(1);
+
+        server.dropConnection();
+        send(1);
+
+        assertEquals(2, server.getConnectionCount());
+        assertEquals(2, server.messages.size());
+    }
+
+    @Test
+    void refusesToSendAfterClose() throws Exception {
+        open(10, 60_000);
+        pool.close();
+
+        assertThrows(MessagingException.class, () -> send(1));
+    }
+
+    private void open(int maxMessagesPerConnection, long idleTimeoutMillis) throws IOException {
+        server = new ScriptedSmtpServer("250 PIPELINING");
+        pool = new SmtpConnectionPool(server.getHost(), server.getPort(),
+                PipeliningSmtpConnection.factory(server.getHost(), server.getPort(), "sender@example.com", () -> new char[0]),
+                1, maxMessagesPerConnection, idleTimeoutMillis);
+    }
+
+    private void send(int count) throws Exception {
+        int received = server.messages.size();
+        for (int i = 0; i < count; i++) {
+            MimeMessage message = new MimeMessageFactory("Тема", MessageTemplate.compile("Привет, {name}!\n"))
+                    .create(new Recipient("good@example.com", "Иван"));
+            message.setFrom(new InternetAddress("sender@example.com"));
+            pool.send(message, new InternetAddress[]{new InternetAddress("good@example.com")});
+        }
+        server.awaitMessages(received + count);
+    }
+}